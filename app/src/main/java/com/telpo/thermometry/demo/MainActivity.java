@@ -3,6 +3,7 @@ package com.telpo.thermometry.demo;
 import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.view.Choreographer;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -11,14 +12,23 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.Lifecycle;
 
+import com.telpo.thermometry.ThermoAlertEngine;
 import com.telpo.thermometry.ThermoAlgorithm;
 import com.telpo.thermometry.ThermoFactory;
+import com.telpo.thermometry.ThermoFactoryRegistry;
+import com.telpo.thermometry.ThermoImageRenderer;
 import com.telpo.thermometry.ThermoMeasureResult;
+import com.telpo.thermometry.ThermoPalette;
+import com.telpo.thermometry.ThermoRenderGovernor;
 import com.telpo.thermometry.Thermometer;
 import com.uber.autodispose.android.lifecycle.AndroidLifecycleScopeProvider;
 
+import java.util.concurrent.Future;
+
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 import static com.uber.autodispose.AutoDispose.autoDisposable;
 
@@ -27,9 +37,13 @@ public class MainActivity extends AppCompatActivity {
     private TextView tvMachineTemperature;
     private ImageView imageView;
     private Button btnTest;
-    private Bitmap palette; // 热成像调色板位图
+    private Future<ThermoPalette> warmUp; // 后台预热，完成时返回热成像调色板颜色表
+    private volatile ThermoPalette palette; // 热成像调色板颜色表
     private Disposable autoReportDisposable;
 
+    private static final float DISPLAY_FPS = 10; // 热成像显示帧率，测温仍然处理每一帧
+    private static final float FEVER_TEMPERATURE = 37.3F; // 体温异常报警温度
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -37,8 +51,8 @@ public class MainActivity extends AppCompatActivity {
         tvMachineTemperature = findViewById(R.id.tvMachineTemperature);
         imageView = findViewById(R.id.imageView);
 
-        // 创建热成像调色板位图
-        palette = ThermoFactory.createPalette(this, R.drawable.palette);
+        // 后台加载测温算法库并创建热成像调色板颜色表，第一次测温不需要等待冷启动
+        warmUp = ThermoFactoryRegistry.warmUp(this, R.drawable.palette);
 
         btnTest = findViewById(R.id.btnTest);
         btnTest.setOnClickListener(v -> onTest());
@@ -59,26 +73,48 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void startAutoReport() {
-        // 创建默认测温算法
-        ThermoAlgorithm algorithm = ThermoFactory.createDefaultAlgorithm();
-        assert algorithm != null;
-
         ThermoMeasureResult result = new ThermoMeasureResult(); // 测温算法返回结果
-        autoReportDisposable = RxThermometer
-            .from(Thermometer.getDefaultFactory())
-            .getTemperatures()
-            .doOnNext(data -> { // 每帧温度阵列输出
-                // 创建热成像位图
-                Bitmap image = ThermoFactory.createThermoImage(data, palette, false);
-                // UI 显示热成像
-                runOnUiThread(() -> imageView.setImageBitmap(image));
-                // 测温算法处理
-                algorithm.measureTemperature(data, result);
+        Choreographer choreographer = Choreographer.getInstance(); // 主线程的 vsync
+        autoReportDisposable = Single.fromFuture(warmUp)
+            .subscribeOn(Schedulers.io())
+            // 预热完成后开始获取数据帧
+            .flatMapPublisher(thermoPalette -> {
+                palette = thermoPalette;
+                // 创建默认测温算法，预热后算法库已经加载
+                ThermoAlgorithm defaultAlgorithm = ThermoFactory.createDefaultAlgorithm();
+                assert defaultAlgorithm != null;
+                // 连续 3 帧达到报警温度才报警，低于报警温度 0.2 度才解除，5 秒内不重复报警
+                ThermoAlertEngine alertEngine = new ThermoAlertEngine((rule, state, temperature, timestamp) -> {
+                    if (state == ThermoAlertEngine.ALERT) {
+                        runOnUiThread(() -> Toast.makeText(this,
+                            String.format("体温异常：%.1f", temperature), Toast.LENGTH_SHORT).show());
+                    }
+                });
+                alertEngine.addRule(FEVER_TEMPERATURE, 0.2F, 3, 5000);
+                ThermoAlgorithm algorithm = alertEngine.monitor(defaultAlgorithm); // 每次测温后判断报警规则
+                ThermoImageRenderer renderer = new ThermoImageRenderer(thermoPalette); // 热成像绘制器，轮流复用位图
+                // 在主线程 vsync 时绘制最新的一帧并显示，两次绘制之间的数据帧被合并
+                ThermoRenderGovernor governor = new ThermoRenderGovernor(
+                    frame -> imageView.setImageBitmap(renderer.render(frame)), choreographer, DISPLAY_FPS);
+                return RxThermometer
+                    .from(Thermometer.getDefaultFactory())
+                    .getTemperatures()
+                    .doOnSubscribe(subscription -> governor.start())
+                    .doFinally(governor::stop)
+                    .doOnNext(data -> { // 每帧温度阵列输出
+                        // 测温算法处理
+                        algorithm.measureTemperature(data, result);
+                        // 只复制数据帧，不在测温线程绘制
+                        governor.submit(data);
+                    });
             })
             // 过滤未能确定温度的数据帧
             .filter(data -> result.getType() != ThermoMeasureResult.UNKNOWN)
+            // 按显示精度 0.1 度取整，显示值不变时不格式化、不切换线程
+            .map(data -> Math.round(result.getTemperature() * 10))
+            .distinctUntilChanged()
             // 转温度值输出
-            .map(data -> String.format("%.1f", result.getTemperature()))
+            .map(tenths -> String.format("%.1f", tenths / 10.0F))
             // 切换到主线程显示机温
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(temperature -> tvMachineTemperature.setText(temperature), Throwable::printStackTrace);
@@ -94,12 +130,11 @@ public class MainActivity extends AppCompatActivity {
     private void onTest() {
         btnTest.setText("请稍候...");
         btnTest.setEnabled(false);
-        stopAutoReport();
 
+        // 与主动上报共享同一个测温设备会话，不需要停止主动上报
         RxThermometer.from(Thermometer.getDefaultFactory())
             .getMeasureResult()
             .observeOn(AndroidSchedulers.mainThread())
-            .doAfterTerminate(this::startAutoReport)  // 被动请求结束后开启主动上报
             .doFinally(() -> {
                 btnTest.setText(R.string.getTemperatureTest);
                 btnTest.setEnabled(true);
@@ -107,9 +142,11 @@ public class MainActivity extends AppCompatActivity {
             // 绑定界面生命周期，Activity onStop 时自动停止
             .as(autoDisposable(AndroidLifecycleScopeProvider.from(this, Lifecycle.Event.ON_STOP)))
             .subscribe(res -> {
-                // 显示最后一帧热成像
-                Bitmap image = ThermoFactory.createThermoImage(res.getLatestFrame(), palette, false);
-                imageView.setImageBitmap(image);
+                // 显示最后一帧热成像，预热还没有完成时不显示
+                if (palette != null) {
+                    Bitmap image = ThermoFactory.createThermoImage(res.getLatestFrame(), palette, false);
+                    imageView.setImageBitmap(image);
+                }
                 // 显示机温
                 String temperature = String.format("%.1f", res.getTemperature());
                 tvMachineTemperature.setText(temperature);
@@ -10,88 +10,150 @@ import com.telpo.thermometry.ThermoAlgorithm;
 import com.telpo.thermometry.ThermoFactory;
 import com.telpo.thermometry.ThermoMeasureResult;
 import com.telpo.thermometry.Thermometer;
+import com.telpo.thermometry.ThermometerInfoSampler;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
 import io.reactivex.FlowableOnSubscribe;
 import io.reactivex.Single;
-import io.reactivex.SingleEmitter;
-import io.reactivex.SingleOnSubscribe;
 import io.reactivex.schedulers.Schedulers;
 
 public class RxThermometer {
-    private Thermometer.Factory factory;
-    private static Executor executor = new Executor() {
-        final Handler mHandler;
-        {
-            HandlerThread thread = new HandlerThread(RxThermometer.class.getSimpleName());
-            thread.start();
-            mHandler = new Handler(thread.getLooper());
-        }
+    // 每个测温设备一个 RxThermometer，按设备 ID 或工厂对象区分
+    private static final Map<Object, RxThermometer> instances = new HashMap<>();
 
-        @Override
-        public void execute(@NonNull Runnable command) {
-            mHandler.post(command);
-        }
-    };
+    private final Thermometer.Factory factory;
+
+    // 每个测温设备独占一个工作线程，多个测温设备可以同时工作
+    private final DeviceExecutor executor;
+
+    private ThermometerInfoSampler sampler;
+
+    // 共享的温度阵列数据帧流，第一个订阅者订阅时启动测温设备，最后一个订阅者取消时停止
+    private final Flowable<float[][]> temperatures;
 
-    private RxThermometer(Thermometer.Factory factory) {
+    private RxThermometer(String name, Thermometer.Factory factory) {
         this.factory = factory;
+        this.executor = new DeviceExecutor(RxThermometer.class.getSimpleName() + "-" + name);
+        this.temperatures = Flowable.create(new TemperaturesOnSubscribe(), BackpressureStrategy.LATEST)
+                .subscribeOn(Schedulers.from(executor))
+                .share();
     }
 
+    /**
+     * 按工厂对象获取 RxThermometer，同一个工厂对象共享一个测温设备会话
+     * <p>
+     * 同一个类的不同工厂对象（例如回放不同文件的工厂）是不同的测温设备
+     *
+     * @param factory 为 null 时使用默认测温设备工厂
+     */
     public static RxThermometer from(Thermometer.Factory factory) {
         if (factory == null) {
             factory = Thermometer.getDefaultFactory();
+            if (factory == null) {
+                throw new IllegalStateException("no default thermometer factory");
+            }
         }
-        return new RxThermometer(factory);
+        return obtain(factory, factory.getClass().getSimpleName(), factory);
     }
 
-    private Thermometer createThermometer() {
-        return factory.createThermometer();
+    /**
+     * 按设备 ID 获取 RxThermometer，同一块主板上有多个测温设备时使用
+     *
+     * @throws IllegalArgumentException 设备 ID 已经使用其它工厂对象创建，需要先调用 {@link #release()}
+     * @see RxThermometerManager
+     */
+    public static RxThermometer from(String deviceId, Thermometer.Factory factory) {
+        if (deviceId == null || factory == null) {
+            throw new IllegalArgumentException("deviceId or factory is null");
+        }
+        return obtain(deviceId, deviceId, factory);
     }
 
-    private final class TemperaturesOnSubscribe implements TemperaturesListener, FlowableOnSubscribe<float[][]> {
-        FlowableEmitter<float[][]> emitter;
+    private static RxThermometer obtain(Object key, String name, Thermometer.Factory factory) {
+        synchronized (instances) {
+            RxThermometer rxThermometer = instances.get(key);
+            if (rxThermometer == null) {
+                rxThermometer = new RxThermometer(name, factory);
+                instances.put(key, rxThermometer);
+            } else if (rxThermometer.factory != factory) {
+                throw new IllegalArgumentException("device " + name + " already created with another factory");
+            }
+            return rxThermometer;
+        }
+    }
 
-        @Override
-        public boolean onTemperaturesReceived(float[][] data) {
-            emitter.onNext(data);
-            return emitter.isCancelled();
+    /**
+     * 释放测温设备：之后 from 会创建新的 RxThermometer，退出工作线程并停止环境温度采样
+     * <p>
+     * 应在所有订阅取消后调用，正在运行的数据帧流会阻塞工作线程直到测温设备停止；释放后再订阅会收到
+     * {@link RejectedExecutionException}
+     */
+    public void release() {
+        synchronized (instances) {
+            Iterator<RxThermometer> iterator = instances.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == this) {
+                    iterator.remove();
+                }
+            }
+        }
+        synchronized (this) {
+            if (sampler != null) {
+                sampler.stop();
+                sampler = null;
+            }
+        }
+        executor.quit();
+    }
+
+    private static final class DeviceExecutor implements Executor {
+        final HandlerThread mThread;
+        final Handler mHandler;
+
+        DeviceExecutor(String name) {
+            mThread = new HandlerThread(name);
+            mThread.start();
+            mHandler = new Handler(mThread.getLooper());
         }
 
         @Override
-        public void subscribe(FlowableEmitter<float[][]> emitter) throws Exception {
-            this.emitter = emitter;
-            Thermometer thermometer = createThermometer();
-            emitter.setCancellable(thermometer::stop);
-            thermometer.getTemperatures(this);
+        public void execute(@NonNull Runnable command) {
+            if (!mHandler.post(command)) {
+                throw new RejectedExecutionException(mThread.getName() + " released");
+            }
+        }
+
+        // 已经提交的任务执行完后退出工作线程
+        void quit() {
+            mThread.quitSafely();
         }
     }
 
-    private final class MeasureResultOnSubscribe implements TemperaturesListener, SingleOnSubscribe<ThermoMeasureResult> {
-        SingleEmitter<ThermoMeasureResult> emitter;
-        ThermoMeasureResult result = new ThermoMeasureResult();
-        ThermoAlgorithm algorithm;
+    private Thermometer createThermometer() {
+        return factory.createThermometer();
+    }
 
-        MeasureResultOnSubscribe(ThermoAlgorithm algorithm) {
-            this.algorithm = algorithm;
-        }
+    private final class TemperaturesOnSubscribe implements TemperaturesListener, FlowableOnSubscribe<float[][]> {
+        FlowableEmitter<float[][]> emitter;
 
         @Override
         public boolean onTemperaturesReceived(float[][] data) {
-            algorithm.measureTemperature(data, result);
-            if (result.getType() != ThermoMeasureResult.UNKNOWN) {
-                emitter.onSuccess(result);
-                return true;
-            }
-            return emitter.isDisposed();
+            emitter.onNext(data);
+            return emitter.isCancelled();
         }
 
         @Override
-        public void subscribe(SingleEmitter<ThermoMeasureResult> emitter) throws Exception {
+        public void subscribe(FlowableEmitter<float[][]> emitter) throws Exception {
             this.emitter = emitter;
             Thermometer thermometer = createThermometer();
             emitter.setCancellable(thermometer::stop);
@@ -99,38 +161,93 @@ public class RxThermometer {
         }
     }
 
+    /**
+     * 温度阵列数据帧，多个订阅者共享同一个测温设备会话
+     * <p>
+     * 数据帧在测温设备线程输出，数组会被复用，切换线程前需要复制
+     */
     public Flowable<float[][]> getTemperatures() {
-        return Flowable.create(new TemperaturesOnSubscribe(), BackpressureStrategy.LATEST)
-                .subscribeOn(Schedulers.from(executor));
+        return temperatures;
     }
 
+    /**
+     * 测温结果，接入正在运行的数据帧流，不会重新启动测温设备
+     */
     public Single<ThermoMeasureResult> getMeasureResult(ThermoAlgorithm algorithm) {
-        return Single.create(new MeasureResultOnSubscribe(algorithm))
-                .subscribeOn(Schedulers.from(executor));
+        return Flowable.defer(() -> {
+            ThermoMeasureResult result = new ThermoMeasureResult();
+            return temperatures
+                    .filter(data -> {
+                        algorithm.measureTemperature(data, result);
+                        return result.getType() != ThermoMeasureResult.UNKNOWN;
+                    })
+                    .map(data -> {
+                        // 数据帧流继续运行，数组会被复用，保留最后一帧的副本
+                        result.setLatestFrame(copyOf(data));
+                        return result;
+                    });
+        }).firstOrError();
     }
 
     public Single<ThermoMeasureResult> getMeasureResult() {
         return getMeasureResult(ThermoFactory.createDefaultAlgorithm());
     }
 
-    private Single<Thermometer> getThermometer() {
-        return Single.create(new SingleOnSubscribe<Thermometer>() {
-            SingleEmitter<Thermometer> emitter;
-            @Override
-            public void subscribe(SingleEmitter<Thermometer> emitter) {
-                this.emitter = emitter;
-                Thermometer thermometer = createThermometer();
-                emitter.setCancellable(thermometer::stop);
-                emitter.onSuccess(thermometer);
-            }
-        }).subscribeOn(Schedulers.from(executor));
+    static float[][] copyOf(float[][] data) {
+        float[][] copy = new float[data.length][];
+        for (int i = 0; i < data.length; i++) {
+            copy[i] = data[i].clone();
+        }
+        return copy;
+    }
+
+    // 环境温度和版本号缓存，使用单独的测温设备对象，不启动后台刷新线程
+    private synchronized ThermometerInfoSampler getSampler() {
+        if (sampler == null) {
+            sampler = new ThermometerInfoSampler(createThermometer());
+        }
+        return sampler;
+    }
+
+    // 访问硬件的读取都在测温设备的工作线程执行，与数据帧流串行，不会同时访问同一个测温设备；
+    // 数据帧流运行时会等待它结束
+    private <T> Single<T> onDevice(Callable<T> callable) {
+        return Single.fromCallable(callable).subscribeOn(Schedulers.from(executor));
     }
 
+    /**
+     * 版本号，读取一次后缓存
+     */
     public Single<String> getVersion() {
-        return getThermometer().map(Thermometer::getVersion);
+        return Single.defer(() -> {
+            String version = getSampler().getVersion();
+            if (version != null) {
+                return Single.just(version);
+            }
+            return onDevice(() -> getSampler().refreshVersion());
+        });
     }
 
+    /**
+     * 环境温度，快照过期时才读取测温设备
+     */
     public Single<Float> getAmbientTemperature() {
-        return getThermometer().map(Thermometer::getAmbientTemperature);
+        return Single.defer(() -> {
+            ThermometerInfoSampler sampler = getSampler();
+            if (!sampler.isAmbientStale()) {
+                return Single.just(sampler.getAmbientSnapshot().getTemperature());
+            }
+            return onDevice(() -> sampler.refreshAmbient().getTemperature());
+        });
+    }
+
+    /**
+     * 定时刷新的环境温度，只在订阅期间按采样间隔读取，取消订阅后停止
+     */
+    public Flowable<Float> getAmbientTemperatures() {
+        return Flowable.defer(() -> Flowable.interval(0, getSampler().getIntervalMillis(), TimeUnit.MILLISECONDS)
+                // 数据帧流占用工作线程时，最多保留一次等待中的读取
+                .onBackpressureDrop()
+                .concatMapSingle(tick -> getAmbientTemperature(), 1));
     }
 }
@@ -0,0 +1,104 @@
+package com.telpo.thermometry.demo;
+
+import com.telpo.thermometry.ThermoMeasureResult;
+import com.telpo.thermometry.Thermometer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * 多测温设备管理，例如同一块主板上的进口和出口两个测温设备
+ * <p>
+ * 每个测温设备有自己的工作线程和数据帧流，互不等待
+ */
+public class RxThermometerManager {
+    private final Map<String, RxThermometer> devices = new LinkedHashMap<>();
+
+    /**
+     * 数据帧和它来自的测温设备
+     */
+    public static final class DeviceFrame {
+        public final String deviceId;
+        public final float[][] data;
+
+        DeviceFrame(String deviceId, float[][] data) {
+            this.deviceId = deviceId;
+            this.data = data;
+        }
+    }
+
+    public synchronized RxThermometerManager register(String deviceId, Thermometer.Factory factory) {
+        if (deviceId == null || factory == null) {
+            throw new IllegalArgumentException("deviceId or factory is null");
+        }
+        if (devices.containsKey(deviceId)) {
+            throw new IllegalArgumentException("device " + deviceId + " already registered");
+        }
+        devices.put(deviceId, RxThermometer.from(deviceId, factory));
+        return this;
+    }
+
+    /**
+     * 注销测温设备并释放它的工作线程，应在该设备的所有订阅取消后调用
+     *
+     * @see RxThermometer#release()
+     */
+    public void unregister(String deviceId) {
+        RxThermometer device;
+        synchronized (this) {
+            device = devices.remove(deviceId);
+        }
+        if (device == null) {
+            throw new IllegalArgumentException("unknown device " + deviceId);
+        }
+        device.release();
+    }
+
+    public synchronized Set<String> getDeviceIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(devices.keySet()));
+    }
+
+    public synchronized RxThermometer get(String deviceId) {
+        RxThermometer device = devices.get(deviceId);
+        if (device == null) {
+            throw new IllegalArgumentException("unknown device " + deviceId);
+        }
+        return device;
+    }
+
+    /**
+     * 单个测温设备的数据帧流，在该设备的工作线程输出
+     */
+    public Flowable<float[][]> getTemperatures(String deviceId) {
+        return get(deviceId).getTemperatures();
+    }
+
+    public Single<ThermoMeasureResult> getMeasureResult(String deviceId) {
+        return get(deviceId).getMeasureResult();
+    }
+
+    /**
+     * 所有测温设备合并的数据帧流
+     * <p>
+     * 各设备的数据帧在各自的工作线程产生，合并后可能在其它线程输出，所以数据帧是复制的
+     */
+    public Flowable<DeviceFrame> getAllTemperatures() {
+        List<Flowable<DeviceFrame>> streams = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, RxThermometer> entry : devices.entrySet()) {
+                String deviceId = entry.getKey();
+                streams.add(entry.getValue().getTemperatures()
+                        .map(data -> new DeviceFrame(deviceId, RxThermometer.copyOf(data))));
+            }
+        }
+        return Flowable.merge(streams);
+    }
+}
@@ -0,0 +1,120 @@
+package com.telpo.thermometry.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import com.telpo.thermometry.ThermoAlgorithm;
+import com.telpo.thermometry.ThermoMeasureResult;
+import com.telpo.thermometry.ThermoPalette;
+import com.telpo.thermometry.ThermoSimulator;
+
+/**
+ * 性能测试用的数据帧、调色板和参考测温算法
+ * <p>
+ * 数据帧由固定种子的 {@link ThermoSimulator} 生成：25 摄氏度环境温度、上下约 1 摄氏度的温差、
+ * 两个 36.5 摄氏度左右的人脸区域、0.1 摄氏度噪声和 2 个坏点，每次运行结果相同。
+ */
+final class Fixtures {
+    static final long SEED = 20200401L;
+
+    private Fixtures() {}
+
+    /**
+     * 解析 "宽x高" 格式的参数
+     */
+    static int[] parseSize(String size) {
+        int x = size.indexOf('x');
+        return new int[] {Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1))};
+    }
+
+    static ThermoSimulator simulator(int width, int height) {
+        ThermoSimulator simulator = new ThermoSimulator(width, height, 0);
+        simulator.setSeed(SEED);
+        simulator.setAmbient(25.0F, 1.0F / height);
+        simulator.addBlob(width * 0.35F, height * 0.4F, width * 0.15F, 36.5F, 0.2F, 0.1F);
+        simulator.addBlob(width * 0.7F, height * 0.6F, width * 0.12F, 37.2F, -0.15F, 0.05F);
+        simulator.setNoise(0.1F);
+        simulator.setDeadPixels(2, 0.0F);
+        return simulator;
+    }
+
+    /**
+     * 生成连续的数据帧
+     *
+     * @return frames[帧][行][列]
+     */
+    static float[][][] frames(int width, int height, int count) {
+        final float[][][] frames = new float[count][height][width];
+        final int[] index = {0};
+        try {
+            simulator(width, height).getTemperatures(data -> {
+                for (int y = 0; y < height; ++y) {
+                    System.arraycopy(data[y], 0, frames[index[0]][y], 0, width);
+                }
+                return ++index[0] >= count;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return frames;
+    }
+
+    static float[][] frame(int width, int height) {
+        return frames(width, height, 1)[0];
+    }
+
+    /**
+     * 与默认调色板大小相同的蓝-绿-红渐变，5 到 41 摄氏度，每 0.1 摄氏度一个颜色
+     */
+    static Bitmap paletteBitmap() {
+        int length = (int) ((ThermoPalette.DEFAULT_END_TEMPERATURE - ThermoPalette.DEFAULT_START_TEMPERATURE) * 10);
+        Bitmap bitmap = Bitmap.createBitmap(length, 1, Bitmap.Config.ARGB_8888);
+        for (int i = 0; i < length; ++i) {
+            float t = i / (float) (length - 1);
+            int red = (int) (255 * Math.max(0, 2 * t - 1));
+            int blue = (int) (255 * Math.max(0, 1 - 2 * t));
+            int green = 255 - red - blue;
+            bitmap.setPixel(i, 0, 0xFF000000 | (red << 16) | (green << 8) | blue);
+        }
+        return bitmap;
+    }
+
+
+    /**
+     * 参考测温算法：中心区域（或指定区域）最高的 4 个点的平均值
+     * <p>
+     * 默认测温算法在 runtime 模块中，不能在 JVM 上运行，参考算法的访问模式和计算量与之相近，
+     * 用于比较 float 二维数组和 {@link com.telpo.thermometry.ThermoFrame} 两种调用方式的开销。
+     */
+    static final class ReferenceAlgorithm implements ThermoAlgorithm {
+        private final Rect center = new Rect();
+        private final float[] top = new float[4];
+
+        @Override
+        public void measureTemperature(float[][] data, ThermoMeasureResult result) {
+            int height = data.length, width = data[0].length;
+            center.set(width / 4, height / 4, width * 3 / 4, height * 3 / 4);
+            measureTemperature(data, center, result);
+        }
+
+        @Override
+        public void measureTemperature(float[][] data, Rect rect, ThermoMeasureResult result) {
+            top[0] = top[1] = top[2] = top[3] = Float.NEGATIVE_INFINITY;
+            for (int y = rect.top; y < rect.bottom; ++y) {
+                float[] row = data[y];
+                for (int x = rect.left; x < rect.right; ++x) {
+                    float value = row[x];
+                    if (value > top[3]) {
+                        int i = 3;
+                        while (i > 0 && value > top[i - 1]) {
+                            top[i] = top[i - 1];
+                            --i;
+                        }
+                        top[i] = value;
+                    }
+                }
+            }
+            result.set(ThermoMeasureResult.SNAPSHOT, (top[0] + top[1] + top[2] + top[3]) / 4);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.telpo.thermometry.benchmark;
+
+import android.graphics.Rect;
+
+import com.telpo.thermometry.ThermoAlgorithm;
+import com.telpo.thermometry.ThermoBlobDetector;
+import com.telpo.thermometry.ThermoFrame;
+import com.telpo.thermometry.ThermoHotspotFinder;
+import com.telpo.thermometry.ThermoIntegralImage;
+import com.telpo.thermometry.ThermoMeasureResult;
+import com.telpo.thermometry.ThermoRegionStatistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测温算法和区域统计，使用参考测温算法
+ *
+ * @see Fixtures.ReferenceAlgorithm
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ThermoAlgorithmBenchmark {
+    private float[][] data;
+    private ThermoFrame frame;
+    private ThermoAlgorithm algorithm;
+    private final ThermoMeasureResult result = new ThermoMeasureResult();
+
+    private Rect[] regions;
+    private ThermoRegionStatistics[] statistics;
+    private ThermoIntegralImage integral;
+    private ThermoHotspotFinder hotspotFinder;
+    private ThermoBlobDetector blobDetector;
+
+    @Setup
+    public void setup() {
+        data = Fixtures.frame(32, 32);
+        frame = ThermoFrame.fromArray(data);
+        algorithm = new Fixtures.ReferenceAlgorithm();
+        regions = new Rect[] {
+                new Rect(4, 4, 16, 16), new Rect(16, 4, 28, 16),
+                new Rect(4, 16, 16, 28), new Rect(16, 16, 28, 28)};
+        statistics = new ThermoRegionStatistics[regions.length];
+        for (int i = 0; i < regions.length; ++i) {
+            statistics[i] = new ThermoRegionStatistics();
+        }
+        integral = new ThermoIntegralImage();
+        hotspotFinder = new ThermoHotspotFinder(4, 3);
+        blobDetector = new ThermoBlobDetector();
+    }
+
+    @Benchmark
+    public ThermoMeasureResult measureTemperature() {
+        algorithm.measureTemperature(data, result);
+        return result;
+    }
+
+    /** 通过默认方法把数据帧转换为 float 二维数组后测温 */
+    @Benchmark
+    public ThermoMeasureResult measureTemperatureFrame() {
+        algorithm.measureTemperature(frame, result);
+        return result;
+    }
+
+    @Benchmark
+    public ThermoRegionStatistics[] measureRegions() {
+        algorithm.measureRegions(frame, regions, integral, statistics);
+        return statistics;
+    }
+
+    @Benchmark
+    public int findHotspots() {
+        return hotspotFinder.find(frame);
+    }
+
+    @Benchmark
+    public int detectBlobs() {
+        return blobDetector.detect(frame, 25.0F);
+    }
+}
@@ -0,0 +1,92 @@
+package com.telpo.thermometry.benchmark;
+
+import com.telpo.thermometry.ThermoFrame;
+import com.telpo.thermometry.ThermoFrameCodec;
+import com.telpo.thermometry.ThermoFramePool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据帧复制、帧缓冲池和压缩编码，编码使用 64 帧连续数据循环输入
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ThermoFrameBenchmark {
+    private static final int FRAME_COUNT = 64;
+
+    private float[][][] frames;
+    private int index;
+    private ThermoFrame frame;
+    private ThermoFramePool pool;
+    private ThermoFrameCodec.Encoder encoder;
+    private ThermoFrameCodec.Decoder decoder;
+    private ByteBuffer encoded;
+    private ByteBuffer keyframe;
+    private float[][] decoded;
+
+    @Setup
+    public void setup() {
+        frames = Fixtures.frames(32, 32, FRAME_COUNT);
+        frame = new ThermoFrame(32, 32);
+        pool = new ThermoFramePool(32, 32, 4);
+        encoder = new ThermoFrameCodec.Encoder();
+        decoder = new ThermoFrameCodec.Decoder();
+        encoded = ByteBuffer.allocate(ThermoFrameCodec.maxEncodedSize(32, 32));
+        keyframe = ByteBuffer.allocate(ThermoFrameCodec.maxEncodedSize(32, 32));
+        new ThermoFrameCodec.Encoder(1).encode(frames[0], 0, keyframe);
+        keyframe.flip();
+        decoded = new float[32][32];
+    }
+
+    private float[][] nextFrame() {
+        float[][] data = frames[index];
+        index = (index + 1) % FRAME_COUNT;
+        return data;
+    }
+
+    @Benchmark
+    public ThermoFrame copyFrom() {
+        frame.copyFrom(nextFrame());
+        return frame;
+    }
+
+    @Benchmark
+    public float[][] toArray() {
+        return frame.toArray();
+    }
+
+    /** 从帧缓冲池取出、复制、释放 */
+    @Benchmark
+    public int pooledFrame() {
+        ThermoFrame pooled = pool.acquire();
+        pooled.copyFrom(nextFrame());
+        int refCount = pooled.getRefCount();
+        pooled.release();
+        return refCount;
+    }
+
+    /** 按关键帧间隔混合关键帧和差分帧 */
+    @Benchmark
+    public int encode() {
+        encoded.clear();
+        return encoder.encode(nextFrame(), 0, encoded);
+    }
+
+    @Benchmark
+    public float[][] decodeKeyframe() {
+        keyframe.rewind();
+        decoder.decode(keyframe);
+        decoder.read(decoded);
+        return decoded;
+    }
+}
@@ -0,0 +1,95 @@
+package com.telpo.thermometry.benchmark;
+
+import android.graphics.Bitmap;
+
+import com.telpo.thermometry.ThermoFactory;
+import com.telpo.thermometry.ThermoFrame;
+import com.telpo.thermometry.ThermoImageRenderer;
+import com.telpo.thermometry.ThermoPalette;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热成像绘制
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ThermoImageBenchmark {
+    @Param({"32x32", "32x24"})
+    public String size;
+
+    private float[][] data;
+    private ThermoFrame frame;
+    private Bitmap paletteBitmap;
+    private ThermoPalette palette;
+    private ThermoImageRenderer blockRenderer;
+    private ThermoImageRenderer bilinearRenderer;
+    private ThermoImageRenderer bicubicRenderer;
+    private int[] pixels;
+
+    @Setup
+    public void setup() {
+        int[] wh = Fixtures.parseSize(size);
+        data = Fixtures.frame(wh[0], wh[1]);
+        frame = ThermoFrame.fromArray(data);
+        paletteBitmap = Fixtures.paletteBitmap();
+        palette = new ThermoPalette(paletteBitmap);
+        blockRenderer = new ThermoImageRenderer(palette);
+        bilinearRenderer = new ThermoImageRenderer(palette);
+        bilinearRenderer.setOutputSize(320, 320);
+        bicubicRenderer = new ThermoImageRenderer(palette);
+        bicubicRenderer.setOutputSize(320, 320);
+        bicubicRenderer.setInterpolation(ThermoImageRenderer.BICUBIC);
+        pixels = new int[320 * 320];
+    }
+
+    /** 兼容接口，调色板为位图，每次创建新的位图 */
+    @Benchmark
+    public Bitmap createThermoImageBitmapPalette() {
+        return ThermoFactory.createThermoImage(data, paletteBitmap);
+    }
+
+    /** 调色板颜色表，每次创建新的位图 */
+    @Benchmark
+    public Bitmap createThermoImage() {
+        return ThermoFactory.createThermoImage(data, palette);
+    }
+
+    @Benchmark
+    public Bitmap createThermoImageFrame() {
+        return ThermoFactory.createThermoImage(frame, palette);
+    }
+
+    /** 复用位图的色块绘制 */
+    @Benchmark
+    public Bitmap renderBlock() {
+        return blockRenderer.render(data);
+    }
+
+    @Benchmark
+    public Bitmap renderBilinear() {
+        return bilinearRenderer.render(data);
+    }
+
+    @Benchmark
+    public Bitmap renderBicubic() {
+        return bicubicRenderer.render(data);
+    }
+
+    /** 只输出像素数组，不经过位图 */
+    @Benchmark
+    public int[] renderBilinearPixels() {
+        bilinearRenderer.render(frame, pixels, 0, 320);
+        return pixels;
+    }
+}
@@ -0,0 +1,53 @@
+package com.telpo.thermometry.benchmark;
+
+import android.graphics.Bitmap;
+
+import com.telpo.thermometry.ThermoPalette;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调色板颜色查找，每次查找一帧 32x32 的所有点
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ThermoPaletteBenchmark {
+    private float[][] data;
+    private Bitmap paletteBitmap;
+    private ThermoPalette palette;
+    private int[] colors;
+
+    @Setup
+    public void setup() {
+        data = Fixtures.frame(32, 32);
+        paletteBitmap = Fixtures.paletteBitmap();
+        palette = new ThermoPalette(paletteBitmap);
+        colors = new int[32 * 32];
+    }
+
+    @Benchmark
+    public int[] getColor() {
+        int i = 0;
+        for (float[] row : data) {
+            for (float value : row) {
+                colors[i++] = palette.getColor(value);
+            }
+        }
+        return colors;
+    }
+
+    /** 从调色板位图创建颜色表，只在初始化时执行一次 */
+    @Benchmark
+    public ThermoPalette createThermoPalette() {
+        return new ThermoPalette(paletteBitmap);
+    }
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+import android.content.res.Resources;
+
+import java.io.File;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public abstract class Context {
+    public static final int MODE_PRIVATE = 0;
+
+    public abstract Context getApplicationContext();
+
+    public abstract Resources getResources();
+
+    public abstract File getCodeCacheDir();
+
+    public abstract File getDir(String name, int mode);
+
+    public abstract ClassLoader getClassLoader();
+}
@@ -0,0 +1,14 @@
+package android.content.res;
+
+import android.util.TypedValue;
+
+import java.io.InputStream;
+
+/**
+ * JVM stand-in of the Android class, resources are not available in benchmarks.
+ */
+public class Resources {
+    public InputStream openRawResource(int id, TypedValue value) {
+        throw new UnsupportedOperationException("resources are not available on the JVM");
+    }
+}
@@ -0,0 +1,59 @@
+package android.graphics;
+
+/**
+ * JVM stand-in of the Android class, pixels are kept in an ARGB int array.
+ */
+public final class Bitmap {
+    public enum Config {
+        ARGB_8888
+    }
+
+    private final int width;
+    private final int height;
+    final int[] pixels;
+
+    private Bitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0");
+        }
+        return new Bitmap(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isRecycled() {
+        return false;
+    }
+
+    public int getPixel(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    public void setPixel(int x, int y, int color) {
+        pixels[y * width + x] = color;
+    }
+
+    public void getPixels(int[] out, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; ++row) {
+            System.arraycopy(pixels, (y + row) * this.width + x, out, offset + row * stride, width);
+        }
+    }
+
+    public void setPixels(int[] colors, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; ++row) {
+            System.arraycopy(colors, offset + row * stride, pixels, (y + row) * this.width + x, width);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package android.graphics;
+
+import android.content.res.Resources;
+
+/**
+ * JVM stand-in of the Android class, resources are not available in benchmarks.
+ */
+public class BitmapFactory {
+    public static class Options {
+        public boolean inScaled;
+        public int inDensity;
+        public int inTargetDensity;
+    }
+
+    public static Bitmap decodeResource(Resources res, int id, Options opts) {
+        throw new UnsupportedOperationException("resources are not available on the JVM");
+    }
+}
@@ -0,0 +1,43 @@
+package android.graphics;
+
+/**
+ * JVM stand-in of the Android class, draws axis-aligned rectangles into the bitmap pixels.
+ */
+public class Canvas {
+    private Bitmap bitmap;
+
+    public Canvas() {}
+
+    public Canvas(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public void setBitmap(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        if (paint.style == Paint.Style.FILL) {
+            fill((int) left, (int) top, (int) right, (int) bottom, paint.color);
+            return;
+        }
+        int stroke = Math.max(1, (int) paint.strokeWidth);
+        fill((int) left, (int) top, (int) right, (int) top + stroke, paint.color);
+        fill((int) left, (int) bottom - stroke, (int) right, (int) bottom, paint.color);
+        fill((int) left, (int) top, (int) left + stroke, (int) bottom, paint.color);
+        fill((int) right - stroke, (int) top, (int) right, (int) bottom, paint.color);
+    }
+
+    private void fill(int left, int top, int right, int bottom, int color) {
+        int width = bitmap.getWidth();
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, width);
+        bottom = Math.min(bottom, bitmap.getHeight());
+        for (int y = top; y < bottom; ++y) {
+            for (int x = left; x < right; ++x) {
+                bitmap.pixels[y * width + x] = color;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package android.graphics;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public class Color {
+    public static final int BLUE = 0xFF0000FF;
+
+    public static int parseColor(String colorString) {
+        if (colorString.charAt(0) == '#') {
+            long color = Long.parseLong(colorString.substring(1), 16);
+            if (colorString.length() == 7) {
+                color |= 0xFF000000L;
+            }
+            return (int) color;
+        }
+        if ("blue".equalsIgnoreCase(colorString)) {
+            return BLUE;
+        }
+        throw new IllegalArgumentException("Unknown color");
+    }
+}
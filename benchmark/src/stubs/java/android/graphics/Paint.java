@@ -0,0 +1,32 @@
+package android.graphics;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public class Paint {
+    public enum Style {
+        FILL, STROKE
+    }
+
+    Style style = Style.FILL;
+    int color = 0xFF000000;
+    float strokeWidth;
+
+    public void reset() {
+        style = Style.FILL;
+        color = 0xFF000000;
+        strokeWidth = 0;
+    }
+
+    public void setStyle(Style style) {
+        this.style = style;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public void setStrokeWidth(float width) {
+        this.strokeWidth = width;
+    }
+}
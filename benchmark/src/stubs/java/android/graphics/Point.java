@@ -0,0 +1,21 @@
+package android.graphics;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public class Point {
+    public int x;
+    public int y;
+
+    public Point() {}
+
+    public Point(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void set(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+}
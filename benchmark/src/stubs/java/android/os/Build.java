@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = 27;
+    }
+
+    public static class VERSION_CODES {
+        public static final int LOLLIPOP = 21;
+    }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * JVM stand-in of the Android class, backed by {@link System#nanoTime()}.
+ */
+public final class SystemClock {
+    private SystemClock() {}
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1000000;
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1000000;
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,8 @@
+package android.util;
+
+/**
+ * JVM stand-in of the Android class, only what the library uses.
+ */
+public class TypedValue {
+    public int density;
+}
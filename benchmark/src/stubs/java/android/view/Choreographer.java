@@ -0,0 +1,21 @@
+package android.view;
+
+/**
+ * JVM stand-in of the Android class, there is no vsync in benchmarks.
+ */
+public class Choreographer {
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    public static Choreographer getInstance() {
+        throw new UnsupportedOperationException("vsync is not available on the JVM");
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        throw new UnsupportedOperationException("vsync is not available on the JVM");
+    }
+
+    public void removeFrameCallback(FrameCallback callback) {
+    }
+}
@@ -0,0 +1,10 @@
+package dalvik.system;
+
+/**
+ * JVM stand-in of the Android class, delegates to the parent class loader.
+ */
+public class DexClassLoader extends ClassLoader {
+    public DexClassLoader(String dexPath, String optimizedDirectory, String librarySearchPath, ClassLoader parent) {
+        super(parent);
+    }
+}
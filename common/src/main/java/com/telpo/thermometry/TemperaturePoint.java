@@ -21,6 +21,13 @@ public class TemperaturePoint extends Point implements Comparable<TemperaturePoi
         this.value = data[y][x];
     }
 
+    /**
+     * Update the temperature value while this point's x or y coordinates changed
+     */
+    public void updateValue(ThermoFrame frame) {
+        this.value = frame.get(x, y);
+    }
+
     @Override @SuppressLint("DefaultLocale")
     public String toString() {
         return String.format("{%.1f(%02d,%02d)}", value, x, y);
@@ -7,6 +7,7 @@ package com.telpo.thermometry;
  *
  * @author  gfm
  * @see     Thermometer
+ * @see     ThermoFrameListener
  * @since   2.0
  */
 public interface TemperaturesListener {
@@ -14,7 +15,8 @@ public interface TemperaturesListener {
      * 在 <code>onTemperaturesReceived</code> 接收到数据帧后可以使用 {@link ThermoFactory#createThermoImage} 创建热成像位图，
      * 还可以使用测温算法 {@link ThermoAlgorithm} 统计温度。
      *
-     * @param data 温度阵列数据帧，float 二维数组，一般大小为 32 * 32
+     * @param data 温度阵列数据帧，float 二维数组，一般大小为 32 * 32。测温设备可能重复使用同一数组输出下一帧，
+     *             需要在返回后继续使用时应复制一份，或者使用 {@link Thermometer#getFrames(ThermoFramePool, ThermoFrameListener)}
      * @return 返回 false 继续获取数据帧，返回 true 停止获取数据帧。
      *
      * @see Thermometer#getTemperatures
@@ -0,0 +1,254 @@
+package com.telpo.thermometry;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>ThermoAlertEngine</code> 体温报警
+ * <p>
+ * 按规则判断测温结果，只在报警状态改变时调用 {@link AlertListener}，下游的处理量与报警次数成正比，而不是与帧数成正比。
+ * 每条规则包括：
+ * <ul>
+ *     <li>报警温度：测温结果达到该值时开始计数</li>
+ *     <li>回差：报警后温度需要低于报警温度减回差才开始计数解除，避免在报警温度附近来回切换</li>
+ *     <li>连续帧数：连续这么多帧满足条件才改变状态，过滤单帧的误测</li>
+ *     <li>冷却时间：同一规则两次报警之间的最短时间，冷却期间满足条件的报警推迟到冷却结束</li>
+ * </ul>
+ * {@link ThermoMeasureResult#UNKNOWN}（例如人已经离开）按低于回差处理。
+ * <pre>
+ * ThermoAlertEngine engine = new ThermoAlertEngine((rule, state, temperature, timestamp) -&gt; {
+ *     if (state == ThermoAlertEngine.ALERT) runOnUiThread(() -&gt; showFever(temperature));
+ * });
+ * engine.addRule(37.3F, 0.2F, 3, 5000);
+ * ThermoAlgorithm algorithm = engine.monitor(ThermoFactory.createDefaultAlgorithm());
+ * </pre>
+ * 每条规则的状态都是基本类型，判断时不分配新的对象。<code>ThermoAlertEngine</code> 不是线程安全的，
+ * 规则应在开始测温之前添加，{@link #update} 应只在一个线程调用。
+ *
+ * @author  gfm
+ * @see     ThermoMeasureResult
+ * @since   2.1
+ */
+public class ThermoAlertEngine {
+    @IntDef({NORMAL, ALERT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface State {}
+
+    /** 正常，或者报警已经解除 */
+    public static final int NORMAL = 0;
+
+    /** 报警 */
+    public static final int ALERT = 1;
+
+    /**
+     * 报警监听接口
+     */
+    public interface AlertListener {
+        /**
+         * 规则的报警状态改变，在调用 {@link #update} 的线程被调用
+         *
+         * @param rule 规则编号，参见 {@link #addRule}
+         * @param state One of {@link #NORMAL}, or {@link #ALERT}.
+         * @param temperature 改变状态的测温结果，报警解除于 {@link ThermoMeasureResult#UNKNOWN} 时为 NaN
+         * @param timestamp 改变状态的时间，单位为纳秒，参见 {@link SystemClock#elapsedRealtimeNanos()}
+         */
+        void onAlert(int rule, @State int state, float temperature, long timestamp);
+    }
+
+    private final AlertListener listener;
+
+    // 规则，下标为规则编号
+    private int ruleCount;
+    private float[] threshold = new float[0];
+    private float[] hysteresis = new float[0];
+    private int[] minFrames = new int[0];
+    private long[] cooldownNanos = new long[0];
+
+    // 每条规则的状态
+    private int[] state = new int[0];
+    private int[] consecutive = new int[0];
+    private long[] lastAlertNanos = new long[0];
+
+    private long alertCount;
+
+    /**
+     * ThermoAlertEngine 构造方法
+     *
+     * @param listener 报警监听接口
+     */
+    public ThermoAlertEngine(AlertListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * 添加一条报警规则
+     *
+     * @param threshold 报警温度
+     * @param hysteresis 回差，不能小于 0
+     * @param minFrames 改变状态需要的连续帧数，至少为 1
+     * @param cooldownMillis 两次报警之间的最短时间，单位为毫秒
+     * @return 规则编号
+     */
+    public int addRule(float threshold, float hysteresis, int minFrames, long cooldownMillis) {
+        if (threshold != threshold || !(hysteresis >= 0) || minFrames < 1 || cooldownMillis < 0) {
+            throw new IllegalArgumentException("invalid rule");
+        }
+        int n = ruleCount + 1;
+        this.threshold = Arrays.copyOf(this.threshold, n);
+        this.hysteresis = Arrays.copyOf(this.hysteresis, n);
+        this.minFrames = Arrays.copyOf(this.minFrames, n);
+        this.cooldownNanos = Arrays.copyOf(this.cooldownNanos, n);
+        this.state = Arrays.copyOf(this.state, n);
+        this.consecutive = Arrays.copyOf(this.consecutive, n);
+        this.lastAlertNanos = Arrays.copyOf(this.lastAlertNanos, n);
+        this.threshold[ruleCount] = threshold;
+        this.hysteresis[ruleCount] = hysteresis;
+        this.minFrames[ruleCount] = minFrames;
+        this.cooldownNanos[ruleCount] = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        return ruleCount++;
+    }
+
+    /** Returns the number of rules. */
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * 返回规则当前的报警状态
+     *
+     * @param rule 规则编号
+     */
+    @State
+    public int getState(int rule) {
+        return state[rule];
+    }
+
+    /** Returns the number of alerts raised. */
+    public long getAlertCount() {
+        return alertCount;
+    }
+
+    /**
+     * 判断一次测温结果，使用当前时间
+     *
+     * @param result 测温结果
+     */
+    public void update(ThermoMeasureResult result) {
+        update(result.getType(), result.getTemperature(), SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * 判断一次测温结果
+     *
+     * @param type 测温结果类型，{@link ThermoMeasureResult#UNKNOWN} 按低于回差处理
+     * @param temperature 测温结果
+     * @param timestamp 测温时间，单位为纳秒
+     */
+    public void update(@ThermoMeasureResult.Type int type, float temperature, long timestamp) {
+        boolean known = type != ThermoMeasureResult.UNKNOWN && temperature == temperature;
+        for (int i = 0; i < ruleCount; ++i) {
+            if (state[i] == NORMAL) {
+                if (known && temperature >= threshold[i]) {
+                    // 冷却期间计数保持在上限，冷却结束时仍满足条件就报警
+                    if (consecutive[i] < minFrames[i]) {
+                        consecutive[i]++;
+                    }
+                    if (consecutive[i] >= minFrames[i]
+                            && (lastAlertNanos[i] == 0 || timestamp - lastAlertNanos[i] >= cooldownNanos[i])) {
+                        transition(i, ALERT, temperature, timestamp);
+                        lastAlertNanos[i] = timestamp;
+                        alertCount++;
+                    }
+                } else {
+                    consecutive[i] = 0;
+                }
+            } else {
+                if (!known || temperature < threshold[i] - hysteresis[i]) {
+                    if (++consecutive[i] >= minFrames[i]) {
+                        transition(i, NORMAL, known ? temperature : Float.NaN, timestamp);
+                    }
+                } else {
+                    consecutive[i] = 0;
+                }
+            }
+        }
+    }
+
+    private void transition(int rule, @State int newState, float temperature, long timestamp) {
+        state[rule] = newState;
+        consecutive[rule] = 0;
+        listener.onAlert(rule, newState, temperature, timestamp);
+    }
+
+    /** 所有规则恢复正常状态，不调用监听接口，冷却时间也重新开始 */
+    public void reset() {
+        Arrays.fill(state, NORMAL);
+        Arrays.fill(consecutive, 0);
+        Arrays.fill(lastAlertNanos, 0);
+    }
+
+    /**
+     * 包装测温算法，每次测温后用测温结果调用 {@link #update(ThermoMeasureResult)}
+     *
+     * @param algorithm 被包装的测温算法
+     */
+    public ThermoAlgorithm monitor(ThermoAlgorithm algorithm) {
+        return new MonitoredAlgorithm(algorithm);
+    }
+
+    private class MonitoredAlgorithm implements ThermoAlgorithm {
+        private final ThermoAlgorithm algorithm;
+
+        MonitoredAlgorithm(ThermoAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public void measureTemperature(float[][] data, ThermoMeasureResult result) {
+            algorithm.measureTemperature(data, result);
+            update(result);
+        }
+
+        @Override
+        public void measureTemperature(float[][] data, Rect rect, ThermoMeasureResult result) {
+            algorithm.measureTemperature(data, rect, result);
+            update(result);
+        }
+
+        @Override
+        public void measureTemperature(ThermoFrame frame, ThermoMeasureResult result) {
+            algorithm.measureTemperature(frame, result);
+            update(result.getType(), result.getTemperature(),
+                    frame.getTimestamp() > 0 ? frame.getTimestamp() : SystemClock.elapsedRealtimeNanos());
+        }
+
+        @Override
+        public void measureTemperature(ThermoFrame frame, Rect rect, ThermoMeasureResult result) {
+            algorithm.measureTemperature(frame, rect, result);
+            update(result.getType(), result.getTemperature(),
+                    frame.getTimestamp() > 0 ? frame.getTimestamp() : SystemClock.elapsedRealtimeNanos());
+        }
+
+        @Override
+        public void measureRegions(ThermoFrame frame, Rect[] rects, ThermoIntegralImage integral,
+                                   ThermoRegionStatistics[] results) {
+            algorithm.measureRegions(frame, rects, integral, results);
+        }
+
+        @Override
+        public void measureRegions(float[][] data, Rect[] rects, ThermoIntegralImage integral,
+                                   ThermoRegionStatistics[] results) {
+            algorithm.measureRegions(data, rects, integral, results);
+        }
+    }
+}
@@ -26,20 +26,17 @@ public interface ThermoAlgorithm {
     }
 
     /**
-     * 创建默认测温算法工厂
+     * 获取默认测温算法工厂
      * <p>
      * 默认实现类是
-     * com.telpo.thermometry.ThermoAlgorithmFactory，通过反射来创建对象，异常时返回 null
+     * com.telpo.thermometry.ThermoAlgorithmFactory，第一次调用时通过反射来创建对象，之后返回同一个对象，异常时返回 null
      *
-     * @return 如果异常返回 null, 否则返回新创建的测温算法工厂对象
+     * @return 如果异常返回 null, 否则返回测温算法工厂对象
+     *
+     * @see ThermoFactoryRegistry#getDefaultAlgorithmFactory()
      */
     static ThermoAlgorithm.Factory getDefaultFactory() {
-        try {
-            return (ThermoAlgorithm.Factory) Class.forName("com.telpo.thermometry.ThermoAlgorithmFactory").newInstance();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
+        return ThermoFactoryRegistry.getDefaultAlgorithmFactory();
     }
 
     /**
@@ -63,4 +60,72 @@ public interface ThermoAlgorithm {
      * @see TemperaturesListener#onTemperaturesReceived
      */
     void measureTemperature(float[][] data, Rect rect, ThermoMeasureResult result);
+
+    /**
+     * 测量温度阵列数据帧的温度值
+     * <p>
+     * 默认实现把数据帧转换成 float 二维数组后调用 {@link #measureTemperature(float[][], ThermoMeasureResult)}，
+     * 转换使用的数组属于数据帧并会被重复使用
+     *
+     * @param frame 温度阵列数据帧
+     * @param result 用于算法输出测量结果
+     *
+     * @see ThermoFrameListener#onFrameReceived
+     * @since 2.1
+     */
+    default void measureTemperature(ThermoFrame frame, ThermoMeasureResult result) {
+        measureTemperature(frame.asArray(), result);
+    }
+
+    /**
+     * 测量温度阵列数据帧的温度值
+     *
+     * @param frame 温度阵列数据帧
+     * @param rect 指定温度阵列数据帧的矩形区域
+     * @param result 用于算法输出测量结果
+     *
+     * @see #measureTemperature(ThermoFrame, ThermoMeasureResult)
+     * @since 2.1
+     */
+    default void measureTemperature(ThermoFrame frame, Rect rect, ThermoMeasureResult result) {
+        measureTemperature(frame.asArray(), rect, result);
+    }
+
+    /**
+     * 统计同一数据帧的多个矩形区域
+     * <p>
+     * 默认实现用数据帧建立一次积分图，每个区域的点数、平均温度和方差只需要常数时间，区域越多、越大越划算
+     *
+     * @param frame 温度阵列数据帧
+     * @param rects 矩形区域
+     * @param integral 用于保存积分图，可以在每帧之间重复使用
+     * @param results 用于输出每个区域的统计结果，长度不能小于 rects
+     *
+     * @see ThermoIntegralImage
+     * @since 2.1
+     */
+    default void measureRegions(ThermoFrame frame, Rect[] rects, ThermoIntegralImage integral, ThermoRegionStatistics[] results) {
+        integral.update(frame);
+        for (int i = 0; i < rects.length; ++i) {
+            integral.getStatistics(rects[i], results[i]);
+        }
+    }
+
+    /**
+     * 统计同一数据帧的多个矩形区域
+     *
+     * @param data 温度阵列数据帧
+     * @param rects 矩形区域
+     * @param integral 用于保存积分图，可以在每帧之间重复使用
+     * @param results 用于输出每个区域的统计结果，长度不能小于 rects
+     *
+     * @see #measureRegions(ThermoFrame, Rect[], ThermoIntegralImage, ThermoRegionStatistics[])
+     * @since 2.1
+     */
+    default void measureRegions(float[][] data, Rect[] rects, ThermoIntegralImage integral, ThermoRegionStatistics[] results) {
+        integral.update(data);
+        for (int i = 0; i < rects.length; ++i) {
+            integral.getStatistics(rects[i], results[i]);
+        }
+    }
 }
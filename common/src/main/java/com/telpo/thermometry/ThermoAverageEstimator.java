@@ -0,0 +1,111 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoAverageEstimator</code> 平均温度估计
+ * <p>
+ * 把每帧的测量结果（{@link ThermoMeasureResult#SNAPSHOT} 温度或区域平均温度）输入 {@link ThermoFilter}，
+ * 滤波结果的置信度达到要求后立即输出 {@link ThermoMeasureResult#AVERAGE} 结果，而不是等待固定的采样时间，
+ * 噪声小时更快得到平均温度，噪声大时自动延长采样。
+ * <p>
+ * 被测对象变化时（例如人离开）应调用 {@link #reset()}。<code>ThermoAverageEstimator</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFilter
+ * @see     ThermoMeasureResult
+ * @since   2.1
+ */
+public class ThermoAverageEstimator {
+    /** 默认可以接受的误差，单位为摄氏度 */
+    public static final float DEFAULT_TOLERANCE = 0.2F;
+
+    /** 默认输出平均温度需要的置信度 */
+    public static final float DEFAULT_MIN_CONFIDENCE = 0.5F;
+
+    /** 默认输出平均温度至少需要的温度值个数 */
+    public static final int DEFAULT_MIN_SAMPLES = 3;
+
+    private final ThermoFilter filter;
+    private final float tolerance;
+    private final float minConfidence;
+    private final int minSamples;
+
+    /**
+     * 使用默认参数创建平均温度估计
+     *
+     * @param filter 温度值流式滤波器
+     */
+    public ThermoAverageEstimator(ThermoFilter filter) {
+        this(filter, DEFAULT_TOLERANCE, DEFAULT_MIN_CONFIDENCE, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * ThermoAverageEstimator 构造方法
+     *
+     * @param filter 温度值流式滤波器
+     * @param tolerance 可以接受的误差，单位为摄氏度，参见 {@link ThermoFilter#getConfidence}
+     * @param minConfidence 输出平均温度需要的置信度，0 到 1 之间
+     * @param minSamples 输出平均温度至少需要的温度值个数
+     */
+    public ThermoAverageEstimator(ThermoFilter filter, float tolerance, float minConfidence, int minSamples) {
+        if (filter == null || !(tolerance > 0)) {
+            throw new IllegalArgumentException("invalid filter or tolerance");
+        }
+        this.filter = filter;
+        this.tolerance = tolerance;
+        this.minConfidence = minConfidence;
+        this.minSamples = Math.max(minSamples, 2);
+    }
+
+    /**
+     * 输入一帧测量结果
+     * <p>
+     * 结果类型为 {@link ThermoMeasureResult#UNKNOWN} 时不更新滤波器。<code>output</code> 的置信度总是被更新，
+     * 置信度达到要求时类型为 {@link ThermoMeasureResult#AVERAGE}，否则为 {@link ThermoMeasureResult#UNKNOWN}。
+     *
+     * @param input 测温算法输出的结果
+     * @param output 用于输出平均温度，可以和 input 是同一对象
+     * @return 如果已经得到平均温度返回 true
+     */
+    public boolean update(ThermoMeasureResult input, ThermoMeasureResult output) {
+        if (input.getType() != ThermoMeasureResult.UNKNOWN) {
+            filter.update(input.getTemperature());
+        }
+        return publish(output);
+    }
+
+    /**
+     * 输入一个温度值，例如某个区域的平均温度
+     *
+     * @param temperature 温度值，NaN 会被忽略
+     * @param output 用于输出平均温度
+     * @return 如果已经得到平均温度返回 true
+     *
+     * @see ThermoIntegralImage#getMean
+     */
+    public boolean update(float temperature, ThermoMeasureResult output) {
+        filter.update(temperature);
+        return publish(output);
+    }
+
+    private boolean publish(ThermoMeasureResult output) {
+        float confidence = filter.getConfidence(tolerance);
+        boolean ready = filter.getSampleCount() >= minSamples && confidence >= minConfidence;
+        output.set(ready ? ThermoMeasureResult.AVERAGE : ThermoMeasureResult.UNKNOWN, filter.getValue(), confidence);
+        return ready;
+    }
+
+    /** Returns the current confidence of the filtered temperature. */
+    public float getConfidence() {
+        return filter.getConfidence(tolerance);
+    }
+
+    /** Returns the filter of this estimator. */
+    public ThermoFilter getFilter() {
+        return filter;
+    }
+
+    /** 清除状态，重新开始估计 */
+    public void reset() {
+        filter.reset();
+    }
+}
@@ -0,0 +1,54 @@
+package com.telpo.thermometry;
+
+import android.annotation.SuppressLint;
+import android.graphics.Rect;
+
+/**
+ * <code>ThermoBlob</code>
+ * <p>
+ * {@link ThermoBlobDetector} 检测到的一个高温连通区域，一般对应视野中的一个人。
+ * 对象属于检测器，下一次检测时会被重复使用，需要保留时应复制其中的值。
+ *
+ * @author  gfm
+ * @see     ThermoBlobDetector
+ * @since   2.1
+ */
+public class ThermoBlob {
+    /** 外接矩形，不包含 right、bottom */
+    final Rect bounds = new Rect();
+
+    /** 最高温度点 */
+    final TemperaturePoint peak = new TemperaturePoint(0, 0, 0);
+
+    /** 平均温度 */
+    float mean;
+
+    /** 点数 */
+    int area;
+
+    /** Returns the bounding rect of this blob in frame coordinates. */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    /** Returns the hottest point of this blob. */
+    public TemperaturePoint getPeak() {
+        return peak;
+    }
+
+    /** Returns the mean temperature of this blob. */
+    public float getMean() {
+        return mean;
+    }
+
+    /** Returns the number of cells in this blob. */
+    public int getArea() {
+        return area;
+    }
+
+    @Override @SuppressLint("DefaultLocale")
+    public String toString() {
+        return String.format("{%s mean=%.1f area=%d [%d,%d,%d,%d]}", peak, mean, area,
+                bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+}
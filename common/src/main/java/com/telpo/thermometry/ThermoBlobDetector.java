@@ -0,0 +1,275 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoBlobDetector</code> 多目标高温区域检测
+ * <p>
+ * 以环境温度（参见 {@link Thermometer#getAmbientTemperature()}）加上阈值差为界，把温度阵列中的高温点按 8 邻域连通，
+ * 一次扫描完成并查集标记，输出每个连通区域的外接矩形、最高温度点、平均温度和点数，
+ * 视野中有多个人时可以分别测温。
+ * <p>
+ * 工作缓冲在创建时或温度阵列大小变化时分配，之后每帧检测不再分配新的对象。
+ * <code>ThermoBlobDetector</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoBlob
+ * @since   2.1
+ */
+public class ThermoBlobDetector {
+    /** 默认高于环境温度的阈值差 */
+    public static final float DEFAULT_THRESHOLD_DELTA = 4.0F;
+
+    /** 默认最小区域点数 */
+    public static final int DEFAULT_MIN_AREA = 4;
+
+    /** 默认最多输出的区域数量 */
+    public static final int DEFAULT_MAX_BLOBS = 8;
+
+    private final float thresholdDelta;
+    private final int minArea;
+    private final ThermoBlob[] blobs;
+    private int blobCount;
+
+    private int width, height;
+
+    /** 每个点的临时标记，0 表示低温点 */
+    private int[] labels;
+
+    /** 并查集和每个临时标记的统计值，下标为临时标记 */
+    private int[] parent;
+    private int[] area;
+    private double[] sum;
+    private float[] peakValue;
+    private int[] peakIndex;
+    private int[] minX, minY, maxX, maxY;
+
+    /** 按点数从大到小排列的根标记 */
+    private final int[] order;
+
+    /**
+     * 使用默认参数创建检测器
+     */
+    public ThermoBlobDetector() {
+        this(DEFAULT_THRESHOLD_DELTA, DEFAULT_MIN_AREA, DEFAULT_MAX_BLOBS);
+    }
+
+    /**
+     * ThermoBlobDetector 构造方法
+     *
+     * @param thresholdDelta 高于环境温度多少视为高温点
+     * @param minArea 点数少于该值的区域被忽略
+     * @param maxBlobs 最多输出的区域数量，超过时保留点数最多的区域
+     */
+    public ThermoBlobDetector(float thresholdDelta, int minArea, int maxBlobs) {
+        if (maxBlobs <= 0) {
+            throw new IllegalArgumentException("maxBlobs must be positive");
+        }
+        this.thresholdDelta = thresholdDelta;
+        this.minArea = Math.max(minArea, 1);
+        this.blobs = new ThermoBlob[maxBlobs];
+        for (int i = 0; i < maxBlobs; ++i) {
+            blobs[i] = new ThermoBlob();
+        }
+        this.order = new int[maxBlobs];
+    }
+
+    /**
+     * 检测高温区域
+     *
+     * @param frame 温度阵列数据帧
+     * @param ambientTemperature 环境温度
+     * @return 检测到的区域数量，使用 {@link #getBlob} 获取结果
+     */
+    public int detect(ThermoFrame frame, float ambientTemperature) {
+        return detect(null, frame.getData(), frame.getStride(), frame.getWidth(), frame.getHeight(), ambientTemperature);
+    }
+
+    /**
+     * 检测高温区域
+     *
+     * @param data 温度阵列数据帧
+     * @param ambientTemperature 环境温度
+     * @return 检测到的区域数量，使用 {@link #getBlob} 获取结果
+     */
+    public int detect(float[][] data, float ambientTemperature) {
+        if (data == null || data.length == 0 || data[0] == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        return detect(data, null, 0, data[0].length, data.length, ambientTemperature);
+    }
+
+    /** Returns the number of blobs found by the last detection. */
+    public int getBlobCount() {
+        return blobCount;
+    }
+
+    /**
+     * 返回最近一次检测的结果，按点数从大到小排列
+     *
+     * @param index 0 到 {@link #getBlobCount()} - 1
+     */
+    public ThermoBlob getBlob(int index) {
+        if (index < 0 || index >= blobCount) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + blobCount);
+        }
+        return blobs[index];
+    }
+
+    private int detect(float[][] data, float[] flat, int stride, int width, int height, float ambientTemperature) {
+        ensureCapacity(width, height);
+        final float threshold = ambientTemperature + thresholdDelta;
+        int next = 1;
+
+        // 一次扫描：标记高温点，合并相邻标记，同时累计每个临时标记的统计值
+        for (int y = 0; y < height; ++y) {
+            float[] row = data != null ? data[y] : flat;
+            int start = data != null ? 0 : y * stride;
+            for (int x = 0; x < width; ++x) {
+                int index = y * width + x;
+                float value = row[start + x];
+                if (!(value > threshold)) {
+                    labels[index] = 0;
+                    continue;
+                }
+
+                int label = 0;
+                if (x > 0) {
+                    label = merge(label, labels[index - 1]);
+                }
+                if (y > 0) {
+                    int above = index - width;
+                    if (x > 0) {
+                        label = merge(label, labels[above - 1]);
+                    }
+                    label = merge(label, labels[above]);
+                    if (x < width - 1) {
+                        label = merge(label, labels[above + 1]);
+                    }
+                }
+                if (label == 0) {
+                    label = next++;
+                    parent[label] = label;
+                    area[label] = 0;
+                    sum[label] = 0;
+                    peakValue[label] = value;
+                    peakIndex[label] = index;
+                    minX[label] = maxX[label] = x;
+                    minY[label] = maxY[label] = y;
+                }
+
+                labels[index] = label;
+                area[label]++;
+                sum[label] += value;
+                if (value > peakValue[label]) {
+                    peakValue[label] = value;
+                    peakIndex[label] = index;
+                }
+                if (x < minX[label]) {
+                    minX[label] = x;
+                } else if (x > maxX[label]) {
+                    maxX[label] = x;
+                }
+                maxY[label] = y;
+            }
+        }
+
+        // 临时标记的统计值合并到根标记
+        for (int label = 1; label < next; ++label) {
+            int root = find(label);
+            if (root != label) {
+                area[root] += area[label];
+                sum[root] += sum[label];
+                if (peakValue[label] > peakValue[root]) {
+                    peakValue[root] = peakValue[label];
+                    peakIndex[root] = peakIndex[label];
+                }
+                minX[root] = Math.min(minX[root], minX[label]);
+                minY[root] = Math.min(minY[root], minY[label]);
+                maxX[root] = Math.max(maxX[root], maxX[label]);
+                maxY[root] = Math.max(maxY[root], maxY[label]);
+            }
+        }
+
+        // 按点数保留最大的若干区域
+        int count = 0;
+        for (int label = 1; label < next; ++label) {
+            if (parent[label] != label || area[label] < minArea) {
+                continue;
+            }
+            int i;
+            if (count < order.length) {
+                i = count++;
+            } else if (area[order[count - 1]] < area[label]) {
+                i = count - 1;
+            } else {
+                continue;
+            }
+            while (i > 0 && area[order[i - 1]] < area[label]) {
+                order[i] = order[i - 1];
+                --i;
+            }
+            order[i] = label;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            int root = order[i];
+            ThermoBlob blob = blobs[i];
+            blob.area = area[root];
+            blob.mean = (float) (sum[root] / area[root]);
+            blob.bounds.set(minX[root], minY[root], maxX[root] + 1, maxY[root] + 1);
+            blob.peak.set(peakIndex[root] % width, peakIndex[root] / width);
+            blob.peak.value = peakValue[root];
+        }
+        blobCount = count;
+        return count;
+    }
+
+    // 合并两个标记，返回合并后的根标记，0 表示低温点
+    private int merge(int label, int neighbor) {
+        if (neighbor == 0) {
+            return label;
+        }
+        int b = find(neighbor);
+        if (label == 0) {
+            return b;
+        }
+        int a = find(label);
+        if (a == b) {
+            return a;
+        }
+        if (a < b) {
+            parent[b] = a;
+            return a;
+        }
+        parent[a] = b;
+        return b;
+    }
+
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private void ensureCapacity(int width, int height) {
+        if (labels != null && this.width == width && this.height == height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        int size = width * height;
+        // 临时标记从 1 开始，数量不会超过点数
+        int maxLabels = size + 1;
+        labels = new int[size];
+        parent = new int[maxLabels];
+        area = new int[maxLabels];
+        sum = new double[maxLabels];
+        peakValue = new float[maxLabels];
+        peakIndex = new int[maxLabels];
+        minX = new int[maxLabels];
+        minY = new int[maxLabels];
+        maxX = new int[maxLabels];
+        maxY = new int[maxLabels];
+    }
+}
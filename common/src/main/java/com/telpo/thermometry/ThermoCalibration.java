@@ -0,0 +1,395 @@
+package com.telpo.thermometry;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * <code>ThermoCalibration</code> 逐点校准
+ * <p>
+ * 保存每台设备预先标定的逐点增益和偏移、坏点位置和环境温度系数，在数据帧交给 {@link ThermoAlgorithm} 之前原地校准：
+ * <pre>
+ * 校准温度 = 原始温度 * 增益 + 偏移 + 环境温度系数 * (环境温度 - 标定时的环境温度)
+ * </pre>
+ * 坏点用周围 8 个正常点的平均值代替。校准只遍历一次数据帧，坏点在下一行校准后处理，此时周围的点都已经校准，
+ * 每帧不分配新的对象。
+ * <p>
+ * 校准文件格式（小端字节序）：魔数、版本、宽、高、坏点数（各 4 字节）、环境温度系数、标定时的环境温度（各 4 字节），
+ * 然后是按行排列的 float 偏移和增益，最后是按行排列的坏点下标（int）。
+ * <pre>
+ * ThermoCalibration calibration = ThermoCalibration.load(file);
+ * thermometer.getTemperatures(calibration.calibrateTemperatures(listener, sampler));
+ * </pre>
+ * <code>ThermoCalibration</code> 创建后不再改变，可以在多个线程同时使用。
+ *
+ * @author  gfm
+ * @see     ThermometerInfoSampler
+ * @since   2.1
+ */
+public class ThermoCalibration {
+    static final int MAGIC = 0x4C435446; // "FTCL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 28;
+
+    private final int width;
+    private final int height;
+    private final float[] offset;
+    private final float[] gain;
+    private final float ambientCoefficient;
+    private final float referenceAmbient;
+
+    /** 坏点下标，按行排列 */
+    private final int[] badPixels;
+
+    /** 第 y 行的坏点在 badPixels 中的范围为 [badRowStart[y], badRowStart[y + 1]) */
+    private final int[] badRowStart;
+
+    /** 坏点标记，用于取周围点时排除其它坏点 */
+    private final boolean[] badMask;
+
+    /**
+     * 创建不改变温度值的校准，用于只代替坏点或作为标定的起点
+     *
+     * @param width 温度阵列宽度（列数）
+     * @param height 温度阵列高度（行数）
+     */
+    public ThermoCalibration(int width, int height) {
+        this(width, height, null, null, null, 0, 0);
+    }
+
+    /**
+     * ThermoCalibration 构造方法
+     *
+     * @param width 温度阵列宽度（列数）
+     * @param height 温度阵列高度（行数）
+     * @param offset 按行排列的逐点偏移，长度为 width * height，为 null 时全部为 0
+     * @param gain 按行排列的逐点增益，长度为 width * height，为 null 时全部为 1
+     * @param badPixels 坏点下标（y * width + x），可以为 null
+     * @param ambientCoefficient 环境温度每升高 1 度温度值的修正量
+     * @param referenceAmbient 标定时的环境温度
+     */
+    public ThermoCalibration(int width, int height, @Nullable float[] offset, @Nullable float[] gain,
+                             @Nullable int[] badPixels, float ambientCoefficient, float referenceAmbient) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("invalid size " + width + "x" + height);
+        }
+        int size = width * height;
+        if ((offset != null && offset.length != size) || (gain != null && gain.length != size)) {
+            throw new IllegalArgumentException("offset and gain must have " + size + " elements");
+        }
+        this.width = width;
+        this.height = height;
+        this.offset = offset != null ? offset.clone() : new float[size];
+        if (gain != null) {
+            this.gain = gain.clone();
+        } else {
+            this.gain = new float[size];
+            Arrays.fill(this.gain, 1.0F);
+        }
+        this.ambientCoefficient = ambientCoefficient;
+        this.referenceAmbient = referenceAmbient;
+
+        this.badMask = new boolean[size];
+        int count = 0;
+        if (badPixels != null) {
+            for (int index : badPixels) {
+                if (index < 0 || index >= size) {
+                    throw new IllegalArgumentException("bad pixel out of range " + index);
+                }
+                if (!badMask[index]) {
+                    badMask[index] = true;
+                    count++;
+                }
+            }
+        }
+        this.badPixels = new int[count];
+        this.badRowStart = new int[height + 1];
+        for (int i = 0, n = 0; i < size; ++i) {
+            if (badMask[i]) {
+                this.badPixels[n++] = i;
+            }
+            if ((i + 1) % width == 0) {
+                badRowStart[(i + 1) / width] = n;
+            }
+        }
+    }
+
+    /**
+     * 读取校准文件
+     *
+     * @param file 校准文件
+     * @throws IOException 文件不存在或格式错误
+     */
+    public static ThermoCalibration load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * 读取校准数据，例如来自 assets 的文件
+     *
+     * @param in 输入流，不会被关闭
+     * @throws IOException 读取失败或格式错误
+     */
+    public static ThermoCalibration read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            bytes.write(chunk, 0, n);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("not a thermometry calibration");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported calibration version " + version);
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int badCount = buffer.getInt();
+        float ambientCoefficient = buffer.getFloat();
+        float referenceAmbient = buffer.getFloat();
+        if (width <= 0 || height <= 0 || badCount < 0
+                || buffer.remaining() != 8L * width * height + 4L * badCount) {
+            throw new IOException("corrupted calibration");
+        }
+        float[] offset = new float[width * height];
+        float[] gain = new float[width * height];
+        int[] badPixels = new int[badCount];
+        buffer.asFloatBuffer().get(offset);
+        buffer.position(buffer.position() + 4 * offset.length);
+        buffer.asFloatBuffer().get(gain);
+        buffer.position(buffer.position() + 4 * gain.length);
+        buffer.asIntBuffer().get(badPixels);
+        try {
+            return new ThermoCalibration(width, height, offset, gain, badPixels, ambientCoefficient, referenceAmbient);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupted calibration", e);
+        }
+    }
+
+    /**
+     * 保存为校准文件
+     *
+     * @param file 校准文件，已存在时被覆盖
+     */
+    public void save(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * 写入校准数据
+     *
+     * @param out 输出流，不会被关闭
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * offset.length + 4 * badPixels.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(badPixels.length)
+                .putFloat(ambientCoefficient).putFloat(referenceAmbient);
+        for (float value : offset) {
+            buffer.putFloat(value);
+        }
+        for (float value : gain) {
+            buffer.putFloat(value);
+        }
+        for (int index : badPixels) {
+            buffer.putInt(index);
+        }
+        out.write(buffer.array());
+    }
+
+    /** Returns the width of frames this calibration applies to. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of frames this calibration applies to. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the number of bad pixels. */
+    public int getBadPixelCount() {
+        return badPixels.length;
+    }
+
+    /** Returns true if the pixel at (x, y) is marked bad. */
+    public boolean isBadPixel(int x, int y) {
+        return badMask[y * width + x];
+    }
+
+    /** Returns the ambient temperature coefficient. */
+    public float getAmbientCoefficient() {
+        return ambientCoefficient;
+    }
+
+    /** Returns the ambient temperature at calibration time. */
+    public float getReferenceAmbient() {
+        return referenceAmbient;
+    }
+
+    /**
+     * 原地校准数据帧，不做环境温度修正
+     *
+     * @param data 温度阵列数据帧，大小必须和校准相同
+     */
+    public void apply(float[][] data) {
+        apply(data, Float.NaN);
+    }
+
+    /**
+     * 原地校准数据帧
+     *
+     * @param data 温度阵列数据帧，大小必须和校准相同
+     * @param ambientTemperature 环境温度，为 NaN 时不做环境温度修正
+     */
+    public void apply(float[][] data, float ambientTemperature) {
+        if (data.length != height || data[0].length != width) {
+            throw new IllegalArgumentException("frame size mismatch, required " + width + "x" + height);
+        }
+        float ambient = ambientTerm(ambientTemperature);
+        for (int y = 0; y < height; ++y) {
+            float[] row = data[y];
+            int i = y * width;
+            for (int x = 0; x < width; ++x, ++i) {
+                row[x] = row[x] * gain[i] + offset[i] + ambient;
+            }
+            // 上一行的坏点周围都已经校准
+            if (y > 0) {
+                fixRow(data, y - 1);
+            }
+        }
+        fixRow(data, height - 1);
+    }
+
+    /**
+     * 原地校准数据帧，不做环境温度修正
+     *
+     * @param frame 温度阵列数据帧，大小必须和校准相同
+     */
+    public void apply(ThermoFrame frame) {
+        apply(frame, Float.NaN);
+    }
+
+    /**
+     * 原地校准数据帧
+     *
+     * @param frame 温度阵列数据帧，大小必须和校准相同
+     * @param ambientTemperature 环境温度，为 NaN 时不做环境温度修正
+     */
+    public void apply(ThermoFrame frame, float ambientTemperature) {
+        if (frame.getWidth() != width || frame.getHeight() != height) {
+            throw new IllegalArgumentException("frame size mismatch, required " + width + "x" + height);
+        }
+        float[] data = frame.getData();
+        int stride = frame.getStride();
+        float ambient = ambientTerm(ambientTemperature);
+        for (int y = 0; y < height; ++y) {
+            int p = y * stride;
+            int i = y * width;
+            for (int x = 0; x < width; ++x, ++p, ++i) {
+                data[p] = data[p] * gain[i] + offset[i] + ambient;
+            }
+            if (y > 0) {
+                fixRow(data, stride, y - 1);
+            }
+        }
+        fixRow(data, stride, height - 1);
+    }
+
+    private float ambientTerm(float ambientTemperature) {
+        return ambientTemperature == ambientTemperature ? ambientCoefficient * (ambientTemperature - referenceAmbient) : 0;
+    }
+
+    // 用周围正常点的平均值代替第 y 行的坏点，周围没有正常点时保留校准后的值
+    private void fixRow(float[][] data, int y) {
+        int y0 = Math.max(y - 1, 0), y1 = Math.min(y + 1, height - 1);
+        for (int b = badRowStart[y]; b < badRowStart[y + 1]; ++b) {
+            int x = badPixels[b] - y * width;
+            int x0 = Math.max(x - 1, 0), x1 = Math.min(x + 1, width - 1);
+            float sum = 0;
+            int count = 0;
+            for (int ny = y0; ny <= y1; ++ny) {
+                for (int nx = x0; nx <= x1; ++nx) {
+                    if (!badMask[ny * width + nx]) {
+                        sum += data[ny][nx];
+                        count++;
+                    }
+                }
+            }
+            if (count > 0) {
+                data[y][x] = sum / count;
+            }
+        }
+    }
+
+    private void fixRow(float[] data, int stride, int y) {
+        int y0 = Math.max(y - 1, 0), y1 = Math.min(y + 1, height - 1);
+        for (int b = badRowStart[y]; b < badRowStart[y + 1]; ++b) {
+            int x = badPixels[b] - y * width;
+            int x0 = Math.max(x - 1, 0), x1 = Math.min(x + 1, width - 1);
+            float sum = 0;
+            int count = 0;
+            for (int ny = y0; ny <= y1; ++ny) {
+                for (int nx = x0; nx <= x1; ++nx) {
+                    if (!badMask[ny * width + nx]) {
+                        sum += data[ny * stride + nx];
+                        count++;
+                    }
+                }
+            }
+            if (count > 0) {
+                data[y * stride + x] = sum / count;
+            }
+        }
+    }
+
+    /**
+     * 包装监听接口，数据帧先原地校准再交给 <code>listener</code>
+     *
+     * @param listener 被包装的监听接口
+     * @param ambientSampler 用于环境温度修正，可以为 null，此时不做环境温度修正
+     */
+    public TemperaturesListener calibrateTemperatures(final TemperaturesListener listener,
+                                                      @Nullable final ThermometerInfoSampler ambientSampler) {
+        return new TemperaturesListener() {
+            @Override
+            public boolean onTemperaturesReceived(float[][] data) {
+                apply(data, ambientSampler != null ? ambientSampler.getAmbientTemperature() : Float.NaN);
+                return listener.onTemperaturesReceived(data);
+            }
+        };
+    }
+
+    /**
+     * 包装监听接口，数据帧先原地校准再交给 <code>listener</code>
+     *
+     * @param listener 被包装的监听接口
+     * @param ambientSampler 用于环境温度修正，可以为 null，此时不做环境温度修正
+     */
+    public ThermoFrameListener calibrateFrames(final ThermoFrameListener listener,
+                                               @Nullable final ThermometerInfoSampler ambientSampler) {
+        return new ThermoFrameListener() {
+            @Override
+            public boolean onFrameReceived(ThermoFrame frame) {
+                apply(frame, ambientSampler != null ? ambientSampler.getAmbientTemperature() : Float.NaN);
+                return listener.onFrameReceived(frame);
+            }
+        };
+    }
+}
@@ -0,0 +1,289 @@
+package com.telpo.thermometry;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * <code>ThermoChangeDetector</code> 数据帧变化检测
+ * <p>
+ * 把数据帧分成 {@link #DEFAULT_BLOCK_SIZE} * {@link #DEFAULT_BLOCK_SIZE} 的块，比较每块的平均温度和上一次通过的数据帧，
+ * 所有块的变化都不超过容差时认为画面没有变化。块平均可以抵消单点噪声，和上一次通过的数据帧比较可以发现缓慢的变化。
+ * 画面长时间不变时每 <code>maxSuppressed</code> 帧仍然通过一帧，下游的结果不会过期。
+ * <p>
+ * 同一次遍历中统计最高温度，高于 <code>presenceTemperature</code> 时认为有温暖的目标（例如人）进入，
+ * 状态改变时调用 {@link PresenceListener}。
+ * <pre>
+ * ThermoChangeDetector detector = new ThermoChangeDetector();
+ * detector.setPresenceListener(30.0F, (present, max) -&gt; Log.d("presence", present + " " + max));
+ * thermometer.getTemperatures(detector.filterTemperatures(listener));
+ * </pre>
+ * 每帧不分配新的对象。<code>ThermoChangeDetector</code> 不是线程安全的，应只在获取数据帧的线程使用。
+ *
+ * @author  gfm
+ * @see     TemperaturesListener
+ * @since   2.1
+ */
+public class ThermoChangeDetector {
+    /**
+     * 有无目标状态监听接口
+     */
+    public interface PresenceListener {
+        /**
+         * 有无目标状态改变
+         *
+         * @param present 是否有目标
+         * @param maxTemperature 当前数据帧的最高温度
+         */
+        void onPresenceChanged(boolean present, float maxTemperature);
+    }
+
+    /** 默认块平均温度容差 */
+    public static final float DEFAULT_TOLERANCE = 0.3F;
+
+    /** 默认块边长 */
+    public static final int DEFAULT_BLOCK_SIZE = 4;
+
+    /** 默认最多连续跳过的帧数 */
+    public static final int DEFAULT_MAX_SUPPRESSED = 30;
+
+    /** 目标离开时最高温度需要低于进入温度的差值，避免状态在阈值附近来回切换 */
+    static final float PRESENCE_HYSTERESIS = 0.5F;
+
+    private final float tolerance;
+    private final int blockSize;
+    private final int maxSuppressed;
+
+    private float presenceTemperature = Float.NaN;
+    private PresenceListener presenceListener;
+    private boolean present;
+
+    private int width, height, blocksX;
+    private float[] reference;
+    private float[] current;
+    private float[] inverseCount;
+    private boolean hasReference;
+
+    private int suppressedInRow;
+    private boolean changed;
+    private float maxTemperature = Float.NaN;
+    private long passedCount;
+    private long suppressedCount;
+
+    /**
+     * 使用默认容差、块大小和最多连续跳过的帧数
+     */
+    public ThermoChangeDetector() {
+        this(DEFAULT_TOLERANCE, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_SUPPRESSED);
+    }
+
+    /**
+     * ThermoChangeDetector 构造方法
+     *
+     * @param tolerance 块平均温度变化超过该值时认为画面变化
+     * @param blockSize 块边长，单位为点
+     * @param maxSuppressed 最多连续跳过的帧数，为 0 时每帧都通过
+     */
+    public ThermoChangeDetector(float tolerance, int blockSize, int maxSuppressed) {
+        if (!(tolerance >= 0) || blockSize <= 0 || maxSuppressed < 0) {
+            throw new IllegalArgumentException("invalid tolerance " + tolerance + ", block size " + blockSize
+                    + " or max suppressed " + maxSuppressed);
+        }
+        this.tolerance = tolerance;
+        this.blockSize = blockSize;
+        this.maxSuppressed = maxSuppressed;
+    }
+
+    /**
+     * 设置有无目标状态监听
+     *
+     * @param presenceTemperature 最高温度达到该值时认为有目标
+     * @param listener 在检测的线程被调用，可以为 null
+     */
+    public void setPresenceListener(float presenceTemperature, @Nullable PresenceListener listener) {
+        this.presenceTemperature = presenceTemperature;
+        this.presenceListener = listener;
+    }
+
+    /**
+     * 检测数据帧是否变化
+     *
+     * @param data 温度阵列数据帧
+     * @return 画面变化或者连续跳过的帧数已达到上限时返回 true，此时数据帧成为新的比较基准
+     */
+    public boolean detect(float[][] data) {
+        prepare(data[0].length, data.length);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int y = 0; y < height; ++y) {
+            float[] row = data[y];
+            int block = (y / blockSize) * blocksX;
+            for (int x0 = 0; x0 < width; x0 += blockSize, ++block) {
+                int x1 = Math.min(x0 + blockSize, width);
+                float sum = 0;
+                for (int x = x0; x < x1; ++x) {
+                    float value = row[x];
+                    // 忽略 NaN 坏点
+                    if (value == value) {
+                        sum += value;
+                        if (value > max) {
+                            max = value;
+                        }
+                    }
+                }
+                current[block] += sum;
+            }
+        }
+        return finish(max);
+    }
+
+    /**
+     * 检测数据帧是否变化
+     *
+     * @param frame 温度阵列数据帧
+     * @return 画面变化或者连续跳过的帧数已达到上限时返回 true，此时数据帧成为新的比较基准
+     */
+    public boolean detect(ThermoFrame frame) {
+        prepare(frame.getWidth(), frame.getHeight());
+        float[] data = frame.getData();
+        int stride = frame.getStride();
+        float max = Float.NEGATIVE_INFINITY;
+        for (int y = 0; y < height; ++y) {
+            int p = y * stride;
+            int block = (y / blockSize) * blocksX;
+            for (int x0 = 0; x0 < width; x0 += blockSize, ++block) {
+                int x1 = Math.min(x0 + blockSize, width);
+                float sum = 0;
+                for (int x = x0; x < x1; ++x) {
+                    float value = data[p + x];
+                    if (value == value) {
+                        sum += value;
+                        if (value > max) {
+                            max = value;
+                        }
+                    }
+                }
+                current[block] += sum;
+            }
+        }
+        return finish(max);
+    }
+
+    private void prepare(int w, int h) {
+        if (current == null || w != width || h != height) {
+            width = w;
+            height = h;
+            blocksX = (w + blockSize - 1) / blockSize;
+            int blocksY = (h + blockSize - 1) / blockSize;
+            reference = new float[blocksX * blocksY];
+            current = new float[blocksX * blocksY];
+            inverseCount = new float[blocksX * blocksY];
+            for (int by = 0; by < blocksY; ++by) {
+                for (int bx = 0; bx < blocksX; ++bx) {
+                    int count = (Math.min((bx + 1) * blockSize, w) - bx * blockSize)
+                            * (Math.min((by + 1) * blockSize, h) - by * blockSize);
+                    inverseCount[by * blocksX + bx] = 1.0F / count;
+                }
+            }
+            hasReference = false;
+        } else {
+            Arrays.fill(current, 0);
+        }
+    }
+
+    private boolean finish(float max) {
+        maxTemperature = max == Float.NEGATIVE_INFINITY ? Float.NaN : max;
+        updatePresence();
+
+        boolean changed = !hasReference || suppressedInRow >= maxSuppressed;
+        for (int i = 0; i < current.length && !changed; ++i) {
+            changed = Math.abs(current[i] - reference[i]) * inverseCount[i] > tolerance;
+        }
+        this.changed = changed;
+        if (changed) {
+            float[] swap = reference;
+            reference = current;
+            current = swap;
+            hasReference = true;
+            suppressedInRow = 0;
+            passedCount++;
+        } else {
+            suppressedInRow++;
+            suppressedCount++;
+        }
+        return changed;
+    }
+
+    private void updatePresence() {
+        float threshold = presenceTemperature;
+        if (threshold != threshold || maxTemperature != maxTemperature) {
+            return;
+        }
+        boolean now = present ? maxTemperature >= threshold - PRESENCE_HYSTERESIS : maxTemperature >= threshold;
+        if (now != present) {
+            present = now;
+            PresenceListener listener = presenceListener;
+            if (listener != null) {
+                listener.onPresenceChanged(now, maxTemperature);
+            }
+        }
+    }
+
+    /** Returns true if the last detected frame changed. */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /** Returns true if a warm object is present. */
+    public boolean isPresent() {
+        return present;
+    }
+
+    /** Returns the maximum temperature of the last detected frame, NaN if none. */
+    public float getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    /** Returns the number of frames passed as changed. */
+    public long getPassedCount() {
+        return passedCount;
+    }
+
+    /** Returns the number of frames suppressed as unchanged. */
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /** 清除比较基准，下一帧总是通过 */
+    public void reset() {
+        hasReference = false;
+        suppressedInRow = 0;
+    }
+
+    /**
+     * 包装监听接口，只把变化的数据帧交给 <code>listener</code>
+     *
+     * @param listener 被包装的监听接口，没有变化的数据帧可以继续使用上一次的测温结果和热成像
+     */
+    public TemperaturesListener filterTemperatures(final TemperaturesListener listener) {
+        return new TemperaturesListener() {
+            @Override
+            public boolean onTemperaturesReceived(float[][] data) {
+                return detect(data) && listener.onTemperaturesReceived(data);
+            }
+        };
+    }
+
+    /**
+     * 包装监听接口，只把变化的数据帧交给 <code>listener</code>
+     *
+     * @param listener 被包装的监听接口，没有变化的数据帧可以继续使用上一次的测温结果和热成像
+     */
+    public ThermoFrameListener filterFrames(final ThermoFrameListener listener) {
+        return new ThermoFrameListener() {
+            @Override
+            public boolean onFrameReceived(ThermoFrame frame) {
+                return detect(frame) && listener.onFrameReceived(frame);
+            }
+        };
+    }
+}
@@ -8,13 +8,14 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.os.Build;
 import android.util.TypedValue;
 
 import androidx.annotation.Nullable;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
 
 import dalvik.system.DexClassLoader;
 
@@ -28,40 +29,89 @@ import dalvik.system.DexClassLoader;
  * @since   2.0
  */
 public class ThermoFactory {
+    // 外部实现库路径 -> 类加载器
+    private static final ConcurrentHashMap<String, DexClassLoader> classLoaders = new ConcurrentHashMap<>();
+
     /** Utility class. */
     private ThermoFactory() {
         throw new IllegalStateException("No instances!");
     }
 
-    /** 创建测温算法工厂 */
+    /**
+     * 创建测温算法工厂，同一个类名只创建一次
+     *
+     * @see ThermoFactoryRegistry#getAlgorithmFactory(String)
+     */
     public static ThermoAlgorithm.Factory createAlgorithmFactory(String clazzName) throws Exception {
-        return (ThermoAlgorithm.Factory) Class.forName(clazzName).newInstance();
+        return ThermoFactoryRegistry.getAlgorithmFactory(clazzName);
     }
 
-    /** 创建测温设备工厂 */
+    /**
+     * 创建测温设备工厂，同一个类名只创建一次
+     *
+     * @see ThermoFactoryRegistry#getThermometerFactory(String)
+     */
     public static Thermometer.Factory createThermometerFactory(String clazzName) throws Exception {
-        return (Thermometer.Factory) Class.forName(clazzName).newInstance();
+        return ThermoFactoryRegistry.getThermometerFactory(clazzName);
     }
 
-    /** 创建测温算法工厂 */
+    /**
+     * 创建测温算法工厂，同一个类加载器和类名只创建一次
+     *
+     * @see ThermoFactoryRegistry#getAlgorithmFactory(ClassLoader, String)
+     */
     public static ThermoAlgorithm.Factory createAlgorithmFactory(DexClassLoader classLoader, String clazzName) throws Exception {
-        return (ThermoAlgorithm.Factory) classLoader.loadClass(clazzName).newInstance();
+        return ThermoFactoryRegistry.getAlgorithmFactory(classLoader, clazzName);
     }
 
-    /** 创建测温设备工厂 */
+    /**
+     * 创建测温设备工厂，同一个类加载器和类名只创建一次
+     *
+     * @see ThermoFactoryRegistry#getThermometerFactory(ClassLoader, String)
+     */
     public static Thermometer.Factory createThermometerFactory(DexClassLoader classLoader, String clazzName) throws Exception {
-        return (Thermometer.Factory) classLoader.loadClass(clazzName).newInstance();
+        return ThermoFactoryRegistry.getThermometerFactory(classLoader, clazzName);
     }
 
-    /** 用于动态加载外部实现库 */
+    /**
+     * 用于动态加载外部实现库
+     * <p>
+     * 同一个 <code>dexPath</code> 和 <code>librarySearchPath</code> 返回同一个类加载器，
+     * 通过它创建的工厂在 {@link ThermoFactoryRegistry} 中只创建一次。不再使用时调用 {@link #removeClassLoader} 释放。
+     */
     public static DexClassLoader getClassLoader(Context context, String dexPath, String librarySearchPath) {
+        String key = classLoaderKey(dexPath, librarySearchPath);
+        DexClassLoader classLoader = classLoaders.get(key);
+        if (classLoader != null) {
+            return classLoader;
+        }
         File codeCacheDir;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             codeCacheDir = context.getCodeCacheDir();
         } else {
             codeCacheDir = context.getDir("code_cache",  Context.MODE_PRIVATE);
         }
-        return new DexClassLoader(dexPath, codeCacheDir.getAbsolutePath(), librarySearchPath, context.getClassLoader());
+        DexClassLoader created = new DexClassLoader(dexPath, codeCacheDir.getAbsolutePath(), librarySearchPath,
+                context.getClassLoader());
+        classLoader = classLoaders.putIfAbsent(key, created);
+        return classLoader != null ? classLoader : created;
+    }
+
+    /**
+     * 释放 {@link #getClassLoader} 缓存的类加载器和通过它创建的工厂，之后再调用 {@link #getClassLoader} 会重新加载
+     *
+     * @param dexPath 与调用 {@link #getClassLoader} 时相同
+     * @param librarySearchPath 与调用 {@link #getClassLoader} 时相同
+     */
+    public static void removeClassLoader(String dexPath, String librarySearchPath) {
+        DexClassLoader classLoader = classLoaders.remove(classLoaderKey(dexPath, librarySearchPath));
+        if (classLoader != null) {
+            ThermoFactoryRegistry.remove(classLoader);
+        }
+    }
+
+    private static String classLoaderKey(String dexPath, String librarySearchPath) {
+        return dexPath + File.pathSeparatorChar + File.pathSeparatorChar + librarySearchPath;
     }
 
     /**
@@ -129,6 +179,30 @@ public class ThermoFactory {
         return null;
     }
 
+    /**
+     * 创建调色板颜色表
+     * <p>
+     * 调色板位图只解析一次，热成像绘制时直接查表选择颜色
+     *
+     * @param context 通过该 Context 获取资源
+     * @param resId 调色板图片资源 ID
+     * @return 如果发生异常返回 null， 否则返回新创建的调色板颜色表
+     *
+     * @see #createPalette
+     * @see #createThermoImage(float[][], ThermoPalette)
+     */
+    public static ThermoPalette createThermoPalette(Context context, int resId) {
+        try {
+            final Bitmap palette = createPalette(context, resId);
+            if (palette != null) {
+                return new ThermoPalette(palette);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     /**
      * 这个接口用于 {@link #createThermoImage} 基本绘制完成后进行额外的绘制
      */
@@ -179,7 +253,7 @@ public class ThermoFactory {
             paint.setStyle(Paint.Style.STROKE);
             paint.setColor(borderColor);
             paint.setStrokeWidth(borderWidth);
-            canvas.drawRect(new Rect((width - size) / 2 , (height - size) / 2, (width + size) / 2, (height + size) / 2), paint);
+            canvas.drawRect((width - size) / 2, (height - size) / 2, (width + size) / 2, (height + size) / 2, paint);
         }
     }
 
@@ -226,86 +300,141 @@ public class ThermoFactory {
      *
      * @see ThermoFactory#createPalette
      * @see TemperaturesListener#onTemperaturesReceived
+     * @see #createThermoImage(float[][], ThermoPalette, ThermoImageExtraDrawer)
      */
     public static Bitmap createThermoImage(float[][] data, Bitmap palette, @Nullable ThermoImageExtraDrawer extraDrawer) {
         try {
-            if (palette == null || data == null || data.length == 0) {
-                throw new IllegalArgumentException("data invalid");
-            }
-            float startTem = 5.0F;
-            float endTem = 41.0F;
-            int size = (int) Math.sqrt(data.length);
-            int width = size * 10;
-            int height = size * 10;
-            int color, left, top, right, bottom;
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            for (int i = 0; i < size; ++i) {
-                for (int j = 0; j < size; ++j) {
-                    color = selectTemColor(palette, data[i][j], startTem, endTem);
-                    left = j * 10; top = i * 10;
-                    right = left + 10; bottom = top + 10;
-                    for (int x = left; x < right; ++x) {
-                        for (int y = top; y < bottom; ++y) {
-                            bitmap.setPixel(x, y, color);
-                        }
-                    }
-                }
-            }
-
-            if (extraDrawer != null) {
-                extraDrawer.draw(new Canvas(bitmap), new Paint(), width, height);
-            }
-            return bitmap;
+            return createThermoImage(data, obtainThermoPalette(palette), extraDrawer);
         } catch (Throwable e) {
             e.printStackTrace();
         }
         return null;
     }
 
-    // 根据温度值从调色板选择颜色
-    private static int selectTemColor(Bitmap palette, float temperature, float startTem, float endTem) {
-        int width = palette.getWidth();
-        int height = palette.getHeight();
-        float compensate = 6.0F;
-
-        temperature += compensate;
-        int y = (int)(temperature * 10.0F);
-        int start = (int)(startTem * 10.0F);
-        int end = (int)(endTem * 10.0F);
-        if (y <= start) {
-            y = start;
-        } else if (y > end - 1) {
-            y = end - 1;
-        }
+    /**
+     * 创建热成像位图
+     *
+     * @param data 温度阵列数据帧
+     * @param palette 调色板颜色表
+     * @return 如果发生异常返回 null， 否则返回新创建的位图对象
+     *
+     * @see ThermoFactory#createThermoPalette
+     * @see #createThermoImage(float[][], ThermoPalette, ThermoImageExtraDrawer)
+     */
+    public static Bitmap createThermoImage(float[][] data, ThermoPalette palette) {
+        return createThermoImage(data, palette, null);
+    }
 
-        y -= start;
-        int pixelColor;
-        if (width < height) {
-            pixelColor = palette.getPixel(0, y);
-        } else {
-            pixelColor = palette.getPixel(y, 0);
+    /**
+     * 创建热成像位图
+     *
+     * @param data 温度阵列数据帧
+     * @param palette 调色板颜色表
+     * @param needCenterRect 是否需要绘制中心框
+     * @return 如果发生异常返回 null， 否则返回新创建的位图对象
+     *
+     * @see ThermoFactory#createThermoPalette
+     * @see #createThermoImage(float[][], ThermoPalette, ThermoImageExtraDrawer)
+     * @see ThermoImageCenterRectDrawer
+     */
+    public static Bitmap createThermoImage(float[][] data, ThermoPalette palette, boolean needCenterRect) {
+        return needCenterRect ? createThermoImage(data, palette, new ThermoImageCenterRectDrawer()) : createThermoImage(data, palette);
+    }
+
+    /**
+     * 创建热成像位图
+     *
+     * @param data 温度阵列数据帧
+     * @param palette 调色板颜色表
+     * @param extraDrawer 额外绘制接口对象，可以为 null
+     * @return 如果发生异常返回 null， 否则返回新创建的位图对象
+     *
+     * @see ThermoFactory#createThermoPalette
+     * @see TemperaturesListener#onTemperaturesReceived
+     * @see ThermoImageRenderer
+     */
+    public static Bitmap createThermoImage(float[][] data, ThermoPalette palette, @Nullable ThermoImageExtraDrawer extraDrawer) {
+        try {
+            return newImageRenderer(palette, extraDrawer).render(data);
+        } catch (Throwable e) {
+            e.printStackTrace();
         }
+        return null;
+    }
 
-        int r = Color.red(pixelColor);
-        int g = Color.green(pixelColor);
-        int b = Color.blue(pixelColor);
-        String r1 = Integer.toHexString(r);
-        if (r1.length() == 1) {
-            r1 = "0" + r1;
+    /**
+     * 创建热成像位图
+     *
+     * @param frame 温度阵列数据帧
+     * @param palette 调色板颜色表
+     * @return 如果发生异常返回 null， 否则返回新创建的位图对象
+     *
+     * @see #createThermoImage(ThermoFrame, ThermoPalette, ThermoImageExtraDrawer)
+     */
+    public static Bitmap createThermoImage(ThermoFrame frame, ThermoPalette palette) {
+        return createThermoImage(frame, palette, null);
+    }
+
+    /**
+     * 创建热成像位图
+     * <p>
+     * 热成像大小为温度阵列大小的 10 倍，温度阵列可以不是正方形
+     *
+     * @param frame 温度阵列数据帧
+     * @param palette 调色板颜色表
+     * @param extraDrawer 额外绘制接口对象，可以为 null
+     * @return 如果发生异常返回 null， 否则返回新创建的位图对象
+     *
+     * @see ThermoFactory#createThermoPalette
+     * @see ThermoFrameListener#onFrameReceived
+     * @see ThermoImageRenderer
+     */
+    public static Bitmap createThermoImage(ThermoFrame frame, ThermoPalette palette, @Nullable ThermoImageExtraDrawer extraDrawer) {
+        try {
+            if (frame == null) {
+                throw new IllegalArgumentException("data invalid");
+            }
+            return newImageRenderer(palette, extraDrawer).render(frame);
+        } catch (Throwable e) {
+            e.printStackTrace();
         }
+        return null;
+    }
 
-        String g1 = Integer.toHexString(g);
-        if (g1.length() == 1) {
-            g1 = "0" + g1;
+    // 创建只绘制一次的热成像绘制器，返回的位图不会被复用
+    private static ThermoImageRenderer newImageRenderer(ThermoPalette palette, @Nullable ThermoImageExtraDrawer extraDrawer) {
+        if (palette == null) {
+            throw new IllegalArgumentException("data invalid");
         }
+        ThermoImageRenderer renderer = new ThermoImageRenderer(palette, ThermoImageRenderer.DEFAULT_CELL_SIZE, 1);
+        renderer.setExtraDrawer(extraDrawer);
+        return renderer;
+    }
+
+    /** 最近一次使用的调色板位图及其颜色表 */
+    private static final class PaletteCache {
+        final WeakReference<Bitmap> source;
+        final ThermoPalette palette;
 
-        String b1 = Integer.toHexString(b);
-        if (b1.length() == 1) {
-            b1 = "0" + b1;
+        PaletteCache(Bitmap source, ThermoPalette palette) {
+            this.source = new WeakReference<>(source);
+            this.palette = palette;
         }
+    }
 
-        String colorStr = "#" + r1 + g1 + b1;
-        return Color.parseColor(colorStr);
+    private static volatile PaletteCache paletteCache;
+
+    // 获取调色板位图对应的颜色表，同一位图只解析一次
+    private static ThermoPalette obtainThermoPalette(Bitmap palette) {
+        if (palette == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        PaletteCache cache = paletteCache;
+        if (cache == null || cache.source.get() != palette) {
+            cache = new PaletteCache(palette, new ThermoPalette(palette));
+            paletteCache = cache;
+        }
+        return cache.palette;
     }
 
 }
@@ -0,0 +1,229 @@
+package com.telpo.thermometry;
+
+import android.content.Context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <code>ThermoFactoryRegistry</code> 测温工厂注册表
+ * <p>
+ * 按类加载器和类名缓存通过反射创建的测温算法工厂和测温设备工厂，同一个工厂类只加载和创建一次，之后直接返回缓存的工厂对象。
+ * 加载失败不缓存，下一次调用重新加载，例如 native 库还没有解压完成时的失败不会一直保留。
+ * {@link Thermometer#getDefaultFactory()}、{@link ThermoAlgorithm#getDefaultFactory()} 和
+ * {@link ThermoFactory} 的 <code>create*Factory</code> 方法都通过注册表获取工厂。
+ * <p>
+ * 默认实现会加载 native 库，第一次使用时耗时较长，可以在 app 启动时调用 {@link #warmUp} 在后台线程提前完成。
+ * <p>
+ * 缓存的工厂对象会保持其类加载器。{@link ThermoFactory#getClassLoader} 对同一个外部实现库返回同一个类加载器，
+ * 不再使用时调用 {@link ThermoFactory#removeClassLoader} 释放。
+ *
+ * @author  gfm
+ * @see     ThermoFactory
+ * @since   2.1
+ */
+public final class ThermoFactoryRegistry {
+    /** 默认测温算法工厂类名 */
+    public static final String DEFAULT_ALGORITHM_FACTORY = "com.telpo.thermometry.ThermoAlgorithmFactory";
+
+    /** 默认测温设备工厂类名 */
+    public static final String DEFAULT_THERMOMETER_FACTORY = "com.telpo.thermometry.ThermometerFactory";
+
+    /** 预热时测温算法处理的数据帧数 */
+    static final int WARM_UP_FRAMES = 3;
+
+    private static final int WARM_UP_SIZE = 32;
+
+    // 类加载器 -> 类名 -> 工厂对象
+    private static final ConcurrentHashMap<ClassLoader, ConcurrentHashMap<String, Object>> factories =
+            new ConcurrentHashMap<>();
+
+    /** Utility class. */
+    private ThermoFactoryRegistry() {
+        throw new IllegalStateException("No instances!");
+    }
+
+    /**
+     * 获取测温算法工厂，使用本库的类加载器
+     *
+     * @param clazzName 工厂实现类名
+     * @throws Exception 类不存在、无法创建或没有实现 {@link ThermoAlgorithm.Factory}
+     */
+    public static ThermoAlgorithm.Factory getAlgorithmFactory(String clazzName) throws Exception {
+        return getAlgorithmFactory(defaultClassLoader(), clazzName);
+    }
+
+    /**
+     * 获取测温算法工厂
+     *
+     * @param classLoader 加载工厂实现类的类加载器，例如 {@link ThermoFactory#getClassLoader} 返回的类加载器
+     * @param clazzName 工厂实现类名
+     * @throws Exception 类不存在、无法创建或没有实现 {@link ThermoAlgorithm.Factory}
+     */
+    public static ThermoAlgorithm.Factory getAlgorithmFactory(ClassLoader classLoader, String clazzName) throws Exception {
+        return get(classLoader, clazzName, ThermoAlgorithm.Factory.class);
+    }
+
+    /**
+     * 获取测温设备工厂，使用本库的类加载器
+     *
+     * @param clazzName 工厂实现类名
+     * @throws Exception 类不存在、无法创建或没有实现 {@link Thermometer.Factory}
+     */
+    public static Thermometer.Factory getThermometerFactory(String clazzName) throws Exception {
+        return getThermometerFactory(defaultClassLoader(), clazzName);
+    }
+
+    /**
+     * 获取测温设备工厂
+     *
+     * @param classLoader 加载工厂实现类的类加载器，例如 {@link ThermoFactory#getClassLoader} 返回的类加载器
+     * @param clazzName 工厂实现类名
+     * @throws Exception 类不存在、无法创建或没有实现 {@link Thermometer.Factory}
+     */
+    public static Thermometer.Factory getThermometerFactory(ClassLoader classLoader, String clazzName) throws Exception {
+        return get(classLoader, clazzName, Thermometer.Factory.class);
+    }
+
+    /**
+     * 获取默认测温算法工厂
+     *
+     * @return 如果异常返回 null
+     */
+    public static ThermoAlgorithm.Factory getDefaultAlgorithmFactory() {
+        return getDefault(DEFAULT_ALGORITHM_FACTORY, ThermoAlgorithm.Factory.class);
+    }
+
+    /**
+     * 获取默认测温设备工厂
+     *
+     * @return 如果异常返回 null
+     */
+    public static Thermometer.Factory getDefaultThermometerFactory() {
+        return getDefault(DEFAULT_THERMOMETER_FACTORY, Thermometer.Factory.class);
+    }
+
+    /**
+     * 移除类加载器加载的所有工厂
+     *
+     * @param classLoader 类加载器
+     */
+    public static void remove(ClassLoader classLoader) {
+        factories.remove(classLoader);
+    }
+
+    /** 移除所有缓存的工厂，之后重新加载 */
+    public static void clear() {
+        factories.clear();
+    }
+
+    /**
+     * 在后台线程预热：加载默认测温算法的 native 库，用模拟数据帧运行几次测温算法和热成像绘制，并创建调色板颜色表
+     * <p>
+     * 预热完成后第一次真正测温和绘制不会因为加载类库和解释执行而变慢。预热中测温算法的异常只打印，不影响调色板的创建。
+     * <pre>
+     * Future&lt;ThermoPalette&gt; palette = ThermoFactoryRegistry.warmUp(context, R.drawable.palette);
+     * </pre>
+     *
+     * @param context 通过该 Context 获取资源
+     * @param paletteResId 调色板图片资源 ID
+     * @return 调色板颜色表，创建失败时结果为 null，参见 {@link ThermoFactory#createThermoPalette}
+     */
+    public static Future<ThermoPalette> warmUp(Context context, final int paletteResId) {
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        FutureTask<ThermoPalette> task = new FutureTask<>(new Callable<ThermoPalette>() {
+            @Override
+            public ThermoPalette call() {
+                float[][] data = warmUpFrame();
+                warmUpAlgorithm(data);
+                getDefaultThermometerFactory();
+                ThermoPalette palette = ThermoFactory.createThermoPalette(appContext, paletteResId);
+                if (palette != null) {
+                    new ThermoImageRenderer(palette, ThermoImageRenderer.DEFAULT_CELL_SIZE, 1).render(data);
+                }
+                return palette;
+            }
+        });
+        Thread thread = new Thread(task, ThermoFactoryRegistry.class.getSimpleName() + "-warmUp");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    private static void warmUpAlgorithm(float[][] data) {
+        try {
+            ThermoAlgorithm.Factory factory = getDefaultAlgorithmFactory();
+            if (factory == null) {
+                return;
+            }
+            ThermoAlgorithm algorithm = factory.createThermoAlgorithm();
+            ThermoMeasureResult result = new ThermoMeasureResult();
+            for (int i = 0; i < WARM_UP_FRAMES; ++i) {
+                algorithm.measureTemperature(data, result);
+            }
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 环境温度背景上有一个中心高温区域，接近真实的测温画面
+    private static float[][] warmUpFrame() {
+        float[][] data = new float[WARM_UP_SIZE][WARM_UP_SIZE];
+        float center = (WARM_UP_SIZE - 1) / 2.0F;
+        for (int y = 0; y < WARM_UP_SIZE; ++y) {
+            for (int x = 0; x < WARM_UP_SIZE; ++x) {
+                float d2 = (x - center) * (x - center) + (y - center) * (y - center);
+                data[y][x] = d2 < 36 ? 36.0F : 25.0F;
+            }
+        }
+        return data;
+    }
+
+    private static ClassLoader defaultClassLoader() {
+        return ThermoFactoryRegistry.class.getClassLoader();
+    }
+
+    private static <T> T getDefault(String clazzName, Class<T> type) {
+        try {
+            return get(defaultClassLoader(), clazzName, type);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static <T> T get(ClassLoader classLoader, String clazzName, Class<T> type) throws Exception {
+        if (classLoader == null || clazzName == null) {
+            throw new IllegalArgumentException("classLoader and clazzName must not be null");
+        }
+        ConcurrentHashMap<String, Object> byName = factories.get(classLoader);
+        if (byName == null) {
+            ConcurrentHashMap<String, Object> created = new ConcurrentHashMap<>();
+            byName = factories.putIfAbsent(classLoader, created);
+            if (byName == null) {
+                byName = created;
+            }
+        }
+        Object cached = byName.get(clazzName);
+        if (cached == null) {
+            // 同时加载时可能创建多个工厂对象，只保留第一个
+            Object loaded = load(classLoader, clazzName);
+            cached = byName.putIfAbsent(clazzName, loaded);
+            if (cached == null) {
+                cached = loaded;
+            }
+        }
+        return type.cast(cached);
+    }
+
+    // 加载失败时抛出异常，不缓存
+    private static Object load(ClassLoader classLoader, String clazzName) throws Exception {
+        try {
+            return Class.forName(clazzName, true, classLoader).newInstance();
+        } catch (LinkageError e) {
+            throw new ClassNotFoundException(clazzName, e);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoFilter</code> 温度值流式滤波器
+ * <p>
+ * 每帧调用一次 {@link #update} 输入一个温度值（快照温度或某个区域的平均温度），时间复杂度为 O(1)，
+ * 同时估计输出值的方差，可以根据 {@link #getConfidence} 判断平均温度是否已经收敛，不必等待固定的帧数。
+ * <p>
+ * 提供三种实现：
+ * <ul>
+ *     <li>{@link Ema} 指数滑动平均</li>
+ *     <li>{@link SlidingMean} 固定窗口滑动平均</li>
+ *     <li>{@link Kalman} 一维卡尔曼滤波</li>
+ * </ul>
+ * <code>ThermoFilter</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoAverageEstimator
+ * @since   2.1
+ */
+public abstract class ThermoFilter {
+    /** 已输入的温度值个数 */
+    int sampleCount;
+
+    /**
+     * 输入一个温度值
+     *
+     * @param temperature 温度值，NaN 会被忽略
+     * @return 滤波后的温度值
+     */
+    public final float update(float temperature) {
+        if (temperature == temperature) {
+            sampleCount++;
+            onUpdate(temperature);
+        }
+        return getValue();
+    }
+
+    /** 输入一个有效的温度值，此时 {@link #getSampleCount()} 已经包含该值 */
+    protected abstract void onUpdate(float temperature);
+
+    /** Returns the filtered temperature, NaN before the first sample. */
+    public abstract float getValue();
+
+    /** Returns the estimated variance of {@link #getValue()}. */
+    public abstract float getVariance();
+
+    /** Returns the number of samples since the last reset. */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * 返回滤波结果的置信度
+     * <p>
+     * 置信度为 <code>1 - 标准差 / tolerance</code>，限制在 0 到 1 之间，少于 2 个温度值时为 0
+     *
+     * @param tolerance 可以接受的误差，单位为摄氏度
+     * @return 0 到 1 之间的置信度
+     */
+    public float getConfidence(float tolerance) {
+        if (sampleCount < 2) {
+            return 0;
+        }
+        float variance = getVariance();
+        if (variance != variance) {
+            return 0;
+        }
+        float confidence = 1 - (float) Math.sqrt(variance) / tolerance;
+        return confidence < 0 ? 0 : confidence > 1 ? 1 : confidence;
+    }
+
+    /** 清除状态，重新开始滤波，一般在被测对象变化时调用 */
+    public void reset() {
+        sampleCount = 0;
+    }
+
+    /**
+     * 创建指数滑动平均滤波器
+     *
+     * @param alpha 新温度值的权重，0 到 1 之间，越大响应越快
+     */
+    public static ThermoFilter ema(float alpha) {
+        return new Ema(alpha);
+    }
+
+    /**
+     * 创建固定窗口滑动平均滤波器
+     *
+     * @param window 窗口大小
+     */
+    public static ThermoFilter slidingMean(int window) {
+        return new SlidingMean(window);
+    }
+
+    /**
+     * 创建一维卡尔曼滤波器
+     *
+     * @param processNoise 每帧真实温度变化的方差
+     * @param measurementNoise 测量噪声的方差
+     */
+    public static ThermoFilter kalman(float processNoise, float measurementNoise) {
+        return new Kalman(processNoise, measurementNoise);
+    }
+
+    /**
+     * 指数滑动平均，同时计算指数加权方差
+     */
+    public static class Ema extends ThermoFilter {
+        final float alpha;
+        float mean = Float.NaN;
+        float variance;
+
+        /** @see ThermoFilter#ema */
+        public Ema(float alpha) {
+            if (!(alpha > 0 && alpha <= 1)) {
+                throw new IllegalArgumentException("alpha must be in (0, 1]");
+            }
+            this.alpha = alpha;
+        }
+
+        @Override
+        protected void onUpdate(float temperature) {
+            if (sampleCount == 1) {
+                mean = temperature;
+                variance = 0;
+                return;
+            }
+            float diff = temperature - mean;
+            float increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+
+        @Override
+        public float getValue() {
+            return mean;
+        }
+
+        @Override
+        public float getVariance() {
+            // 有效样本数为 (2 - alpha) / alpha，输入不足时按实际个数计算
+            float effective = Math.min(sampleCount, (2 - alpha) / alpha);
+            return effective > 0 ? variance / effective : Float.NaN;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            mean = Float.NaN;
+            variance = 0;
+        }
+    }
+
+    /**
+     * 固定窗口滑动平均，窗口保存在环形缓冲中
+     */
+    public static class SlidingMean extends ThermoFilter {
+        final float[] window;
+        int index;
+        double sum;
+        double sumSquares;
+
+        /** @see ThermoFilter#slidingMean */
+        public SlidingMean(int window) {
+            if (window <= 1) {
+                throw new IllegalArgumentException("window must be greater than 1");
+            }
+            this.window = new float[window];
+        }
+
+        @Override
+        protected void onUpdate(float temperature) {
+            if (sampleCount > window.length) {
+                float old = window[index];
+                sum -= old;
+                sumSquares -= (double) old * old;
+            }
+            window[index] = temperature;
+            sum += temperature;
+            sumSquares += (double) temperature * temperature;
+            if (++index == window.length) {
+                index = 0;
+                recompute(); // 每个窗口重新累加一次，避免浮点误差积累
+            }
+        }
+
+        private void recompute() {
+            int n = Math.min(sampleCount, window.length);
+            sum = 0;
+            sumSquares = 0;
+            for (int i = 0; i < n; ++i) {
+                sum += window[i];
+                sumSquares += (double) window[i] * window[i];
+            }
+        }
+
+        @Override
+        public float getValue() {
+            int n = Math.min(sampleCount, window.length);
+            return n > 0 ? (float) (sum / n) : Float.NaN;
+        }
+
+        @Override
+        public float getVariance() {
+            int n = Math.min(sampleCount, window.length);
+            if (n < 2) {
+                return Float.NaN;
+            }
+            double mean = sum / n;
+            double sampleVariance = Math.max(sumSquares - n * mean * mean, 0) / (n - 1);
+            return (float) (sampleVariance / n);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            index = 0;
+            sum = 0;
+            sumSquares = 0;
+        }
+    }
+
+    /**
+     * 一维卡尔曼滤波，假设真实温度缓慢变化
+     */
+    public static class Kalman extends ThermoFilter {
+        final float processNoise;
+        final float measurementNoise;
+        float estimate = Float.NaN;
+        float errorVariance;
+
+        /** @see ThermoFilter#kalman */
+        public Kalman(float processNoise, float measurementNoise) {
+            if (processNoise < 0 || !(measurementNoise > 0)) {
+                throw new IllegalArgumentException("invalid noise");
+            }
+            this.processNoise = processNoise;
+            this.measurementNoise = measurementNoise;
+        }
+
+        @Override
+        protected void onUpdate(float temperature) {
+            if (sampleCount == 1) {
+                estimate = temperature;
+                errorVariance = measurementNoise;
+                return;
+            }
+            float predicted = errorVariance + processNoise;
+            float gain = predicted / (predicted + measurementNoise);
+            estimate += gain * (temperature - estimate);
+            errorVariance = (1 - gain) * predicted;
+        }
+
+        @Override
+        public float getValue() {
+            return estimate;
+        }
+
+        @Override
+        public float getVariance() {
+            return sampleCount > 0 ? errorVariance : Float.NaN;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            estimate = Float.NaN;
+            errorVariance = 0;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>ThermoFrame</code> 温度阵列数据帧
+ * <p>
+ * 温度值按行连续保存在一个 float 数组中，第 y 行第 x 列的温度值位于 <code>getData()[y * getStride() + x]</code>，
+ * 每帧只需要一次分配，按行访问时对缓存友好，也不限定温度阵列的大小和宽高比。
+ * <p>
+ * 可以使用 {@link #copyFrom(float[][])} 和 {@link #copyTo(float[][])} 与 float 二维数组互相转换。
+ * <p>
+ * 来自 {@link ThermoFramePool} 的数据帧带有引用计数，需要跨线程或跨处理阶段保留数据帧时先调用 {@link #retain()}，
+ * 用完后调用 {@link #release()}，引用计数为 0 时数据帧回到帧缓冲池。
+ * <p>
+ * 帧缓冲池的调试模式只能发现访问引用计数为 0 的数据帧；数据帧被再次取出后，仍持有旧引用的代码访问时引用计数又大于 0，
+ * 不会被发现。需要检查这种情况时，在保留数据帧时记下 {@link #getGeneration()}，使用前调用 {@link #checkGeneration(int)}。
+ *
+ * @author  gfm
+ * @see     ThermoFrameListener
+ * @see     ThermoFramePool
+ * @see     Thermometer#getFrames
+ * @since   2.1
+ */
+public class ThermoFrame {
+    private final float[] data;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    /** 帧序号 */
+    private long sequence;
+
+    /** 采集时间，单位为纳秒，参见 {@link SystemClock#elapsedRealtimeNanos()} */
+    private long timestamp;
+
+    /** 用于兼容 float 二维数组接口的行数组，按需创建 */
+    private float[][] rows;
+
+    /** 所属帧缓冲池和引用计数，不是来自帧缓冲池时为 null */
+    private final ThermoFramePool pool;
+    private final AtomicInteger refCount;
+
+    /** 每次从帧缓冲池取出时加 1，用于发现数据帧被再次取出后的旧引用 */
+    private volatile int generation;
+
+    /**
+     * 创建数据帧
+     *
+     * @param width 温度阵列宽度（列数）
+     * @param height 温度阵列高度（行数）
+     */
+    public ThermoFrame(int width, int height) {
+        this(new float[width * height], width, height, width);
+    }
+
+    /**
+     * 使用已有数组创建数据帧，数组不会被复制
+     *
+     * @param data 按行保存的温度值
+     * @param width 温度阵列宽度（列数）
+     * @param height 温度阵列高度（行数）
+     * @param stride 每行在数组中的间隔，不能小于 width
+     */
+    public ThermoFrame(float[] data, int width, int height, int stride) {
+        this(data, width, height, stride, null);
+    }
+
+    ThermoFrame(float[] data, int width, int height, int stride, ThermoFramePool pool) {
+        if (width <= 0 || height <= 0 || stride < width) {
+            throw new IllegalArgumentException("invalid frame size " + width + "x" + height + ", stride " + stride);
+        }
+        if (data == null || data.length < (height - 1) * stride + width) {
+            throw new IllegalArgumentException("data too small");
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.pool = pool;
+        this.refCount = pool != null ? new AtomicInteger() : null;
+    }
+
+    /**
+     * 从 float 二维数组创建数据帧
+     *
+     * @param data 温度阵列数据帧，每行长度必须相同
+     * @return 返回新创建的数据帧对象
+     */
+    public static ThermoFrame fromArray(float[][] data) {
+        if (data == null || data.length == 0 || data[0] == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        ThermoFrame frame = new ThermoFrame(data[0].length, data.length);
+        frame.copyFrom(data);
+        return frame;
+    }
+
+    /** Returns the temperature values of this frame, in row-major order. */
+    public float[] getData() {
+        checkReleased();
+        return data;
+    }
+
+    /** 不检查引用计数，供帧缓冲池使用 */
+    float[] getDataUnchecked() {
+        return data;
+    }
+
+    /** Returns the number of columns of this frame. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the number of rows of this frame. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the distance between two rows in {@link #getData()}. */
+    public int getStride() {
+        return stride;
+    }
+
+    /** Returns the sequence number of this frame. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Returns the capture time of this frame, in {@link SystemClock#elapsedRealtimeNanos()} nanoseconds. */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /** Set the sequence number of this frame. */
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /** Set the capture time of this frame. */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * 返回第 y 行第 x 列的温度值
+     */
+    public float get(int x, int y) {
+        checkReleased();
+        return data[y * stride + x];
+    }
+
+    /**
+     * 设置第 y 行第 x 列的温度值
+     */
+    public void set(int x, int y, float value) {
+        checkReleased();
+        data[y * stride + x] = value;
+    }
+
+    /**
+     * 判断数据帧大小是否和 float 二维数组相同
+     */
+    public boolean hasSameSize(float[][] data) {
+        return data != null && data.length == height && data[0] != null && data[0].length == width;
+    }
+
+    /**
+     * 从 float 二维数组复制温度值
+     *
+     * @param data 温度阵列数据帧，大小必须和当前数据帧相同
+     */
+    public void copyFrom(float[][] data) {
+        if (!hasSameSize(data)) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        checkReleased();
+        for (int y = 0; y < height; ++y) {
+            System.arraycopy(data[y], 0, this.data, y * stride, width);
+        }
+    }
+
+    /**
+     * 从另一个数据帧复制温度值、帧序号和采集时间
+     *
+     * @param other 大小必须和当前数据帧相同
+     */
+    public void copyFrom(ThermoFrame other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        checkReleased();
+        other.checkReleased();
+        if (other.stride == stride) {
+            System.arraycopy(other.data, 0, data, 0, (height - 1) * stride + width);
+        } else {
+            for (int y = 0; y < height; ++y) {
+                System.arraycopy(other.data, y * other.stride, data, y * stride, width);
+            }
+        }
+        this.sequence = other.sequence;
+        this.timestamp = other.timestamp;
+    }
+
+    /**
+     * 复制温度值到 float 二维数组
+     *
+     * @param out 大小必须和当前数据帧相同
+     */
+    public void copyTo(float[][] out) {
+        if (!hasSameSize(out)) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        checkReleased();
+        for (int y = 0; y < height; ++y) {
+            System.arraycopy(data, y * stride, out[y], 0, width);
+        }
+    }
+
+    /**
+     * 转换成 float 二维数组
+     *
+     * @return 返回新创建的 float 二维数组
+     */
+    public float[][] toArray() {
+        float[][] out = new float[height][width];
+        copyTo(out);
+        return out;
+    }
+
+    /**
+     * 增加引用计数，保留数据帧直到对应的 {@link #release()} 调用
+     * <p>
+     * 不是来自帧缓冲池的数据帧不需要调用
+     *
+     * @return 当前数据帧
+     * @throws IllegalStateException 数据帧已经回到帧缓冲池
+     */
+    public ThermoFrame retain() {
+        if (pool != null) {
+            for (;;) {
+                int count = refCount.get();
+                if (count <= 0) {
+                    throw new IllegalStateException("frame already released");
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    break;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 减少引用计数，引用计数为 0 时数据帧回到帧缓冲池，之后不能再访问
+     * <p>
+     * 不是来自帧缓冲池的数据帧不需要调用
+     *
+     * @throws IllegalStateException 数据帧已经回到帧缓冲池
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        for (;;) {
+            int count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("frame already released");
+            }
+            if (refCount.compareAndSet(count, count - 1)) {
+                if (count == 1) {
+                    pool.recycle(this);
+                }
+                return;
+            }
+        }
+    }
+
+    /** Returns the reference count of this frame, or 1 if it does not come from a pool. */
+    public int getRefCount() {
+        return pool != null ? refCount.get() : 1;
+    }
+
+    /**
+     * 返回数据帧从帧缓冲池取出的次数，不是来自帧缓冲池的数据帧总是返回 0
+     * <p>
+     * 同一次取出期间保持不变，可以作为持有者的租约标记，参见 {@link #checkGeneration(int)}
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 检查数据帧是否仍是 <code>generation</code> 对应的那一次取出，并且还没有回到帧缓冲池
+     *
+     * @param generation 保留数据帧时 {@link #getGeneration()} 的返回值
+     * @throws IllegalStateException 数据帧已经回到帧缓冲池，或者已经被再次取出
+     */
+    public void checkGeneration(int generation) {
+        if (pool != null && (this.generation != generation || refCount.get() <= 0)) {
+            throw new IllegalStateException("frame released or reused, generation "
+                    + generation + " -> " + this.generation);
+        }
+    }
+
+    /** 帧缓冲池取出数据帧时设置引用计数为 1 */
+    void acquired() {
+        generation++;
+        refCount.set(1);
+    }
+
+    // 调试模式下检查是否访问已经回到帧缓冲池的数据帧，被再次取出后的旧引用需要用 checkGeneration 检查
+    private void checkReleased() {
+        if (pool != null && pool.isDebug() && refCount.get() <= 0) {
+            throw new IllegalStateException("frame already released");
+        }
+    }
+
+    /**
+     * 转换成 float 二维数组，用于调用只接受 float 二维数组的接口
+     * <p>
+     * 返回的数组属于当前数据帧并会被重复使用，内容只在下一次调用前有效
+     */
+    float[][] asArray() {
+        if (rows == null) {
+            rows = new float[height][width];
+        }
+        copyTo(rows);
+        return rows;
+    }
+
+    /**
+     * 把 {@link TemperaturesListener} 接收到的 float 二维数组转换成数据帧再输出给 {@link ThermoFrameListener}
+     * <p>
+     * 数据帧对象会被重复使用，只在尺寸变化时重新创建
+     */
+    static final class ListenerAdapter implements TemperaturesListener {
+        private final ThermoFrameListener listener;
+        private ThermoFrame frame;
+        private long sequence;
+
+        ListenerAdapter(ThermoFrameListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean onTemperaturesReceived(float[][] data) {
+            if (frame == null || !frame.hasSameSize(data)) {
+                frame = new ThermoFrame(data[0].length, data.length);
+            }
+            frame.copyFrom(data);
+            frame.setSequence(sequence++);
+            frame.setTimestamp(SystemClock.elapsedRealtimeNanos());
+            return listener.onFrameReceived(frame);
+        }
+    }
+}
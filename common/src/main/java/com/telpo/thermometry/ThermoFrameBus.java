@@ -0,0 +1,313 @@
+package com.telpo.thermometry;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>ThermoFrameBus</code> 数据帧总线
+ * <p>
+ * 测温设备同时只能有一个 {@link Thermometer#getTemperatures} 调用，<code>ThermoFrameBus</code> 负责这一个获取数据帧的循环，
+ * 把每帧数据分发给多个独立订阅的 {@link ThermoFrameListener}，例如热成像显示、测温和录制。
+ * <p>
+ * 每个订阅有自己的有界队列、工作线程和丢帧策略，慢的订阅者只会在自己的队列里丢帧，不会阻塞测温设备线程和其它订阅者
+ * （{@link #BLOCK} 策略除外）。数据帧来自 {@link ThermoFramePool}，每个订阅者持有一次引用，
+ * 帧缓冲池的容量至少应为每个订阅者队列容量加 1 的总和再加 1，否则帧缓冲池耗尽时数据帧会在分发前被丢弃。
+ * <p>
+ * 调用 {@link #stop()} 后总线不能再使用：{@link #run()} 立即返回，{@link #subscribe} 抛出异常，
+ * 需要重新开始时创建新的 <code>ThermoFrameBus</code>。
+ * <p>
+ * <code>ThermoFrameBus</code> 是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFramePool
+ * @see     Thermometer#getFrames(ThermoFramePool, ThermoFrameListener)
+ * @since   2.1
+ */
+public class ThermoFrameBus {
+    @IntDef({LATEST, BLOCK, DROP_OLDEST})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface DropPolicy {}
+
+    /**
+     * 只保留最新的数据帧，队列中未处理的数据帧被新数据帧替换，队列容量固定为 1。
+     * <p>适用于热成像显示。Use with {@link #subscribe}
+     */
+    public static final int LATEST = 0;
+
+    /**
+     * 队列满时测温设备线程等待，不丢帧，但慢的订阅者会拖慢所有订阅者。
+     * <p>适用于录制。Use with {@link #subscribe}
+     */
+    public static final int BLOCK = 1;
+
+    /**
+     * 队列满时丢弃最旧的数据帧。
+     * <p>适用于测温等需要连续多帧的处理。Use with {@link #subscribe}
+     */
+    public static final int DROP_OLDEST = 2;
+
+    /** {@link #BLOCK} 策略下等待时检查订阅是否取消的间隔 */
+    private static final long BLOCK_POLL_MILLIS = 50;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /** 取消订阅时放入队列，唤醒等待数据帧的工作线程，不使用中断，避免中断正在处理数据帧的监听接口 */
+    private static final ThermoFrame WAKE_UP = new ThermoFrame(1, 1);
+
+    private final Thermometer thermometer;
+    private final ThermoFramePool pool;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean stopped;
+
+    /**
+     * ThermoFrameBus 构造方法
+     *
+     * @param thermometer 测温设备，不要在其它地方再调用它的 <code>getTemperatures</code>
+     * @param pool 帧缓冲池，数据帧大小必须和测温设备输出的温度阵列大小相同
+     */
+    public ThermoFrameBus(Thermometer thermometer, ThermoFramePool pool) {
+        if (thermometer == null || pool == null) {
+            throw new IllegalArgumentException("thermometer or pool is null");
+        }
+        this.thermometer = thermometer;
+        this.pool = pool;
+    }
+
+    /**
+     * 订阅数据帧
+     * <p>
+     * <code>listener</code> 在该订阅专用的工作线程被调用，返回后数据帧被释放一次，需要继续使用时应在返回前调用
+     * {@link ThermoFrame#retain()}。<code>listener</code> 返回 true 时取消订阅。
+     *
+     * @param listener 监听数据帧输出
+     * @param capacity 队列容量，{@link #LATEST} 策略忽略该值
+     * @param policy 队列满时的丢帧策略
+     * @return 返回订阅对象，用于取消订阅和获取丢帧数量
+     * @throws IllegalStateException 总线已经停止
+     */
+    public Subscription subscribe(ThermoFrameListener listener, int capacity, @DropPolicy int policy) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+        if (policy != LATEST && policy != BLOCK && policy != DROP_OLDEST) {
+            throw new IllegalArgumentException("unknown policy " + policy);
+        }
+        if (policy == LATEST) {
+            capacity = 1;
+        } else if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (stopped) {
+            throw new IllegalStateException("bus stopped");
+        }
+        Subscription subscription = new Subscription(this, listener, capacity, policy);
+        subscriptions.add(subscription);
+        subscription.worker.start();
+        if (stopped) {
+            subscription.cancel(); // 与 stop 竞争时，stop 可能没有看到这个订阅
+        }
+        return subscription;
+    }
+
+    /**
+     * 获取数据帧并分发给订阅者
+     * <p>
+     * 调用限制与 {@link Thermometer#getTemperatures} 相同，不能在主线程调用，在 {@link #stop()} 或测温设备停止前不会返回。
+     * 已经调用过 {@link #stop()} 时立即返回。
+     *
+     * @see Thermometer#getFrames(ThermoFramePool, ThermoFrameListener)
+     */
+    public void run() throws Exception {
+        if (stopped) {
+            return;
+        }
+        thermometer.getFrames(pool, new ThermoFrameListener() {
+            @Override
+            public boolean onFrameReceived(ThermoFrame frame) {
+                if (stopped) {
+                    return true;
+                }
+                for (Subscription subscription : subscriptions) {
+                    subscription.offer(frame);
+                }
+                return stopped;
+            }
+        });
+    }
+
+    /**
+     * 停止获取数据帧，并取消所有订阅，之后总线不能再使用
+     * <p>
+     * 可以在主线程调用，在 {@link #run()} 之前调用时 {@link #run()} 不会开始获取数据帧
+     */
+    public void stop() {
+        stopped = true;
+        thermometer.stop();
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    /** Returns the frame pool of this bus. */
+    public ThermoFramePool getPool() {
+        return pool;
+    }
+
+    /** Returns the number of active subscriptions. */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * 数据帧订阅
+     */
+    public static final class Subscription {
+        private final ThermoFrameBus bus;
+        private final ThermoFrameListener listener;
+        private final ArrayBlockingQueue<ThermoFrame> queue;
+        private final int policy;
+        private final Thread worker;
+        private final AtomicLong deliveredCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private volatile boolean cancelled;
+
+        Subscription(ThermoFrameBus bus, ThermoFrameListener listener, int capacity, int policy) {
+            this.bus = bus;
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.policy = policy;
+            this.worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "ThermoFrameBus-" + threadCount.incrementAndGet());
+        }
+
+        // 在测温设备线程调用，只有一个生产者
+        void offer(ThermoFrame frame) {
+            if (cancelled) {
+                return;
+            }
+            frame.retain();
+            if (policy == BLOCK) {
+                try {
+                    while (!queue.offer(frame, BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (cancelled) {
+                            frame.release();
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    frame.release();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } else {
+                while (!queue.offer(frame)) {
+                    ThermoFrame oldest = queue.poll();
+                    if (oldest != null) {
+                        oldest.release();
+                        droppedCount.incrementAndGet();
+                    }
+                }
+            }
+            if (cancelled) {
+                drain(); // 与 cancel 竞争时，确保数据帧回到帧缓冲池
+            }
+        }
+
+        private void work() {
+            try {
+                while (!cancelled) {
+                    ThermoFrame frame = queue.take();
+                    if (frame == WAKE_UP) {
+                        continue;
+                    }
+                    boolean done;
+                    try {
+                        done = listener.onFrameReceived(frame);
+                        deliveredCount.incrementAndGet();
+                    } finally {
+                        frame.release();
+                    }
+                    if (done) {
+                        cancel();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // cancelled
+            } finally {
+                // 监听接口抛出异常时工作线程结束，取消订阅，否则 BLOCK 策略会使测温设备线程一直等待，
+                // 其它策略的队列会一直占用帧缓冲池的数据帧
+                cancel();
+                drain();
+            }
+        }
+
+        // 释放队列中的数据帧，保留唤醒标记，工作线程可能还在等待它
+        private void drain() {
+            boolean wakeUp = false;
+            ThermoFrame frame;
+            while ((frame = queue.poll()) != null) {
+                if (frame == WAKE_UP) {
+                    wakeUp = true;
+                } else {
+                    frame.release();
+                }
+            }
+            if (wakeUp) {
+                queue.offer(WAKE_UP);
+            }
+        }
+
+        /**
+         * 取消订阅，未处理的数据帧被释放
+         * <p>
+         * 正在处理的数据帧会继续处理完成
+         */
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            bus.subscriptions.remove(this);
+            if (Thread.currentThread() == worker) {
+                drain();
+                return;
+            }
+            // 队列被测温设备线程同时放入的数据帧占满时，先释放再放入唤醒标记
+            do {
+                drain();
+            } while (!queue.offer(WAKE_UP));
+        }
+
+        /** Returns true if this subscription has been cancelled. */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** Returns the drop policy of this subscription. */
+        @DropPolicy
+        public int getPolicy() {
+            return policy;
+        }
+
+        /** Returns the number of frames delivered to the listener. */
+        public long getDeliveredCount() {
+            return deliveredCount.get();
+        }
+
+        /** Returns the number of frames dropped from the queue of this subscription. */
+        public long getDroppedCount() {
+            return droppedCount.get();
+        }
+    }
+}
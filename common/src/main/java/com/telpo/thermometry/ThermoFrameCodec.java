@@ -0,0 +1,417 @@
+package com.telpo.thermometry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <code>ThermoFrameCodec</code> 数据帧压缩编码
+ * <p>
+ * 温度值量化为 0.01 摄氏度的定点整数（误差不超过 0.005 摄氏度），再做差分：关键帧使用空间差分（与左边的点相减，
+ * 每行第一个点与上一行相减），其它帧使用时间差分（与上一帧相减）。差分值经过 zig-zag 变换后，
+ * 每行按该行需要的最小位数紧密排列，没有变化的行只占 1 字节。相邻帧变化很小，32x32 的数据帧一般只需要几百字节，
+ * 原始 float 数据为 4KB。
+ * <p>
+ * 每隔固定帧数插入一个关键帧，解码可以从任意关键帧开始。编码和解码都直接读写调用者提供的 {@link ByteBuffer}，
+ * 编码器和解码器在数据帧大小不变时不分配新的对象。
+ * <p>
+ * 每帧格式：类型（1 字节）、宽、高、与上一帧的采集时间差（变长整数），然后每行是位数（1 字节）和紧密排列的差分值。
+ * 编码器和解码器都不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFrameRecorder
+ * @since   2.1
+ */
+public final class ThermoFrameCodec {
+    /** 默认关键帧间隔 */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    /** 量化系数，1 表示 0.01 摄氏度 */
+    public static final float SCALE = 100.0F;
+
+    static final byte TYPE_KEYFRAME = 1;
+    static final byte TYPE_DELTA = 2;
+
+    /** NaN 量化后的值 */
+    private static final int NAN_CODE = Integer.MIN_VALUE;
+
+    /** 量化值的范围，超出时截断 */
+    private static final float MAX_VALUE = (1 << 30) / SCALE;
+
+    private ThermoFrameCodec() {}
+
+    /**
+     * 返回一帧编码后的最大字节数，用于分配输出缓冲
+     *
+     * @param width 数据帧宽度
+     * @param height 数据帧高度
+     */
+    public static int maxEncodedSize(int width, int height) {
+        return 1 + 5 + 5 + 10 + height * (1 + 4 * width);
+    }
+
+    static int quantize(float value) {
+        if (value != value) {
+            return NAN_CODE;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        } else if (value < -MAX_VALUE) {
+            value = -MAX_VALUE;
+        }
+        return Math.round(value * SCALE);
+    }
+
+    static float dequantize(int code) {
+        return code == NAN_CODE ? Float.NaN : code / SCALE;
+    }
+
+    /**
+     * 编码器，保存上一帧的量化值用于时间差分
+     */
+    public static final class Encoder {
+        private final int keyframeInterval;
+        private int width, height;
+        private int[] previous;
+        private int[] current;
+        private int[] codes;
+        private long previousTimestamp;
+        private int framesSinceKeyframe;
+        private boolean keyframeRequested = true;
+
+        /**
+         * 使用默认关键帧间隔创建编码器
+         */
+        public Encoder() {
+            this(DEFAULT_KEYFRAME_INTERVAL);
+        }
+
+        /**
+         * Encoder 构造方法
+         *
+         * @param keyframeInterval 关键帧间隔，为 1 时每帧都是关键帧
+         */
+        public Encoder(int keyframeInterval) {
+            if (keyframeInterval <= 0) {
+                throw new IllegalArgumentException("keyframeInterval must be positive");
+            }
+            this.keyframeInterval = keyframeInterval;
+        }
+
+        /**
+         * 编码一帧数据
+         *
+         * @param data 温度阵列数据帧
+         * @param timestamp 采集时间
+         * @param out 输出缓冲，剩余空间不少于 {@link #maxEncodedSize}
+         * @return 写入的字节数
+         */
+        public int encode(float[][] data, long timestamp, ByteBuffer out) {
+            if (data == null || data.length == 0 || data[0] == null) {
+                throw new IllegalArgumentException("data invalid");
+            }
+            int w = data[0].length, h = data.length;
+            prepare(w, h);
+            for (int y = 0, i = 0; y < h; ++y) {
+                float[] row = data[y];
+                for (int x = 0; x < w; ++x) {
+                    current[i++] = quantize(row[x]);
+                }
+            }
+            return write(timestamp, out);
+        }
+
+        /**
+         * 编码一帧数据，使用数据帧的采集时间
+         *
+         * @param frame 温度阵列数据帧
+         * @param out 输出缓冲，剩余空间不少于 {@link #maxEncodedSize}
+         * @return 写入的字节数
+         */
+        public int encode(ThermoFrame frame, ByteBuffer out) {
+            int w = frame.getWidth(), h = frame.getHeight(), stride = frame.getStride();
+            prepare(w, h);
+            float[] data = frame.getData();
+            for (int y = 0, i = 0; y < h; ++y) {
+                for (int x = 0, j = y * stride; x < w; ++x) {
+                    current[i++] = quantize(data[j++]);
+                }
+            }
+            return write(frame.getTimestamp(), out);
+        }
+
+        /** 下一帧编码为关键帧 */
+        public void requestKeyframe() {
+            keyframeRequested = true;
+        }
+
+        /** 清除状态，下一帧编码为关键帧 */
+        public void reset() {
+            keyframeRequested = true;
+            previousTimestamp = 0;
+        }
+
+        private void prepare(int w, int h) {
+            if (previous == null || width != w || height != h) {
+                width = w;
+                height = h;
+                previous = new int[w * h];
+                current = new int[w * h];
+                codes = new int[w];
+                keyframeRequested = true;
+            }
+        }
+
+        private int write(long timestamp, ByteBuffer out) {
+            int start = out.position();
+            boolean keyframe = keyframeRequested || framesSinceKeyframe >= keyframeInterval;
+            out.put(keyframe ? TYPE_KEYFRAME : TYPE_DELTA);
+            writeVarint(out, width);
+            writeVarint(out, height);
+            writeVarlong(out, zigzag(timestamp - (keyframe ? 0 : previousTimestamp)));
+
+            final int[] cur = current, prev = previous, row = codes;
+            for (int y = 0, i = 0; y < height; ++y) {
+                int max = 0;
+                for (int x = 0; x < width; ++x, ++i) {
+                    int predictor;
+                    if (!keyframe) {
+                        predictor = prev[i];
+                    } else if (x > 0) {
+                        predictor = cur[i - 1];
+                    } else {
+                        predictor = y > 0 ? cur[i - width] : 0;
+                    }
+                    int code = zigzag(cur[i] - predictor);
+                    row[x] = code;
+                    max |= code;
+                }
+                writeRow(out, row, width, 32 - Integer.numberOfLeadingZeros(max));
+            }
+
+            // 写完后再更新状态，输出缓冲不足抛出异常时状态不变
+            current = prev;
+            previous = cur;
+            previousTimestamp = timestamp;
+            framesSinceKeyframe = keyframe ? 1 : framesSinceKeyframe + 1;
+            keyframeRequested = false;
+            return out.position() - start;
+        }
+    }
+
+    /**
+     * 解码器，保存上一帧的量化值用于时间差分
+     */
+    public static final class Decoder {
+        private int width, height;
+        private int[] values;
+        private long timestamp;
+        private boolean keyframe;
+        private boolean ready;
+
+        /**
+         * 解码一帧数据，之后用 {@link #read(float[][])} 或 {@link #read(ThermoFrame)} 读取温度值
+         *
+         * @param in 输入缓冲，解码后位置移到下一帧开始
+         * @throws IllegalStateException 还没有解码过关键帧时遇到差分帧
+         * @throws IllegalArgumentException 数据格式错误
+         */
+        public void decode(ByteBuffer in) {
+            byte type = in.get();
+            if (type != TYPE_KEYFRAME && type != TYPE_DELTA) {
+                throw new IllegalArgumentException("unknown frame type " + type);
+            }
+            boolean key = type == TYPE_KEYFRAME;
+            int w = readVarint(in), h = readVarint(in);
+            if (w <= 0 || h <= 0) {
+                throw new IllegalArgumentException("invalid frame size " + w + "x" + h);
+            }
+            long time = unzigzag(readVarlong(in));
+            if (!key) {
+                if (!ready || w != width || h != height) {
+                    throw new IllegalStateException("delta frame without keyframe");
+                }
+                time += timestamp;
+            } else if (values == null || w != width || h != height) {
+                width = w;
+                height = h;
+                values = new int[w * h];
+            }
+
+            final int[] v = values;
+            ready = false; // 解码失败时需要重新从关键帧开始
+            for (int y = 0, i = 0; y < h; ++y) {
+                int bits = in.get();
+                if (bits < 0 || bits > 32) {
+                    throw new IllegalArgumentException("invalid bit width " + bits);
+                }
+                long mask = (1L << bits) - 1, buffer = 0;
+                int available = 0;
+                for (int x = 0; x < w; ++x, ++i) {
+                    while (available < bits) {
+                        buffer |= (long) (in.get() & 0xFF) << available;
+                        available += 8;
+                    }
+                    int delta = unzigzag((int) (buffer & mask));
+                    buffer >>>= bits;
+                    available -= bits;
+                    if (!key) {
+                        v[i] += delta;
+                    } else if (x > 0) {
+                        v[i] = v[i - 1] + delta;
+                    } else {
+                        v[i] = (y > 0 ? v[i - w] : 0) + delta;
+                    }
+                }
+            }
+            timestamp = time;
+            keyframe = key;
+            ready = true;
+        }
+
+        /** Returns the width of the last decoded frame. */
+        public int getWidth() {
+            return width;
+        }
+
+        /** Returns the height of the last decoded frame. */
+        public int getHeight() {
+            return height;
+        }
+
+        /** Returns the timestamp of the last decoded frame. */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /** Returns true if the last decoded frame was a keyframe. */
+        public boolean isKeyframe() {
+            return keyframe;
+        }
+
+        /**
+         * 读取最近解码的温度值
+         *
+         * @param out 大小必须和解码的数据帧相同
+         */
+        public void read(float[][] out) {
+            checkReady();
+            if (out.length != height || out[0].length != width) {
+                throw new IllegalArgumentException("frame size mismatch");
+            }
+            for (int y = 0, i = 0; y < height; ++y) {
+                float[] row = out[y];
+                for (int x = 0; x < width; ++x) {
+                    row[x] = dequantize(values[i++]);
+                }
+            }
+        }
+
+        /**
+         * 读取最近解码的温度值和采集时间
+         *
+         * @param out 大小必须和解码的数据帧相同
+         */
+        public void read(ThermoFrame out) {
+            checkReady();
+            if (out.getWidth() != width || out.getHeight() != height) {
+                throw new IllegalArgumentException("frame size mismatch");
+            }
+            float[] data = out.getData();
+            int stride = out.getStride();
+            for (int y = 0, i = 0; y < height; ++y) {
+                for (int x = 0, j = y * stride; x < width; ++x) {
+                    data[j++] = dequantize(values[i++]);
+                }
+            }
+            out.setTimestamp(timestamp);
+        }
+
+        /** 清除状态，之后需要从关键帧开始解码 */
+        public void reset() {
+            ready = false;
+        }
+
+        private void checkReady() {
+            if (!ready) {
+                throw new IllegalStateException("no decoded frame");
+            }
+        }
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // 一行差分值按该行需要的最小位数紧密排列，位数为 0 时该行没有变化
+    static void writeRow(ByteBuffer out, int[] codes, int count, int bits) {
+        out.put((byte) bits);
+        if (bits == 0) {
+            return;
+        }
+        long mask = (1L << bits) - 1, buffer = 0;
+        int used = 0;
+        for (int i = 0; i < count; ++i) {
+            buffer |= (codes[i] & mask) << used;
+            used += bits;
+            while (used >= 8) {
+                out.put((byte) buffer);
+                buffer >>>= 8;
+                used -= 8;
+            }
+        }
+        if (used > 0) {
+            out.put((byte) buffer);
+        }
+    }
+
+    static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void writeVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
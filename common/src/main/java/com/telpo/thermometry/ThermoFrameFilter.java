@@ -0,0 +1,107 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoFrameFilter</code> 逐点指数滑动平均
+ * <p>
+ * 对温度阵列的每个点分别做指数滑动平均，降低热成像和测温时的帧间噪声，每帧时间复杂度与点数成正比，不分配新的对象。
+ * 需要对某个区域的温度做滤波并估计置信度时使用 {@link ThermoFilter} 和 {@link ThermoAverageEstimator}。
+ * <p>
+ * <code>ThermoFrameFilter</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFilter.Ema
+ * @since   2.1
+ */
+public class ThermoFrameFilter {
+    private final float alpha;
+    private float[] state;
+    private int width, height;
+    private boolean initialized;
+
+    /**
+     * ThermoFrameFilter 构造方法
+     *
+     * @param alpha 新数据帧的权重，0 到 1 之间，越大响应越快
+     */
+    public ThermoFrameFilter(float alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * 输入一帧数据，并把滤波结果写回该数据帧
+     *
+     * @param frame 温度阵列数据帧，大小变化时滤波重新开始
+     */
+    public void apply(ThermoFrame frame) {
+        apply(frame, frame);
+    }
+
+    /**
+     * 输入一帧数据，滤波结果写入另一个数据帧
+     *
+     * @param input 温度阵列数据帧，大小变化时滤波重新开始
+     * @param output 大小必须和 input 相同，可以是同一对象
+     */
+    public void apply(ThermoFrame input, ThermoFrame output) {
+        int w = input.getWidth(), h = input.getHeight();
+        if (output.getWidth() != w || output.getHeight() != h) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        if (state == null || width != w || height != h) {
+            state = new float[w * h];
+            width = w;
+            height = h;
+            initialized = false;
+        }
+
+        float[] in = input.getData();
+        float[] out = output.getData();
+        int inStride = input.getStride(), outStride = output.getStride();
+        for (int y = 0, k = 0; y < h; ++y) {
+            int i = y * inStride, o = y * outStride;
+            for (int x = 0; x < w; ++x, ++k) {
+                float value = in[i + x];
+                float s = initialized ? state[k] + alpha * (value - state[k]) : value;
+                state[k] = s;
+                out[o + x] = s;
+            }
+        }
+        initialized = true;
+    }
+
+    /**
+     * 输入一帧数据，并把滤波结果写回该数组
+     *
+     * @param data 温度阵列数据帧，大小变化时滤波重新开始
+     */
+    public void apply(float[][] data) {
+        if (data == null || data.length == 0 || data[0] == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        int w = data[0].length, h = data.length;
+        if (state == null || width != w || height != h) {
+            state = new float[w * h];
+            width = w;
+            height = h;
+            initialized = false;
+        }
+
+        for (int y = 0, k = 0; y < h; ++y) {
+            float[] row = data[y];
+            for (int x = 0; x < w; ++x, ++k) {
+                float s = initialized ? state[k] + alpha * (row[x] - state[k]) : row[x];
+                state[k] = s;
+                row[x] = s;
+            }
+        }
+        initialized = true;
+    }
+
+    /** 清除状态，下一帧重新开始滤波 */
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,25 @@
+package com.telpo.thermometry;
+
+/**
+ * 调用 {@link Thermometer#getFrames} 获取温度数据必须传入 <code>ThermoFrameListener</code> 实例参数，
+ * <p>
+ * 与 {@link TemperaturesListener} 相同，只是数据帧类型为 {@link ThermoFrame}。
+ *
+ * @author  gfm
+ * @see     Thermometer#getFrames
+ * @see     ThermoFrame
+ * @since   2.1
+ */
+public interface ThermoFrameListener {
+    /**
+     * 接收数据帧
+     *
+     * @param frame 温度阵列数据帧，在方法返回后可能被重复使用，需要保留时应复制一份；
+     *              来自 {@link ThermoFramePool} 的数据帧可以调用 {@link ThermoFrame#retain()} 保留
+     * @return 返回 false 继续获取数据帧，返回 true 停止获取数据帧。
+     *
+     * @see Thermometer#getFrames
+     * @see ThermoAlgorithm#measureTemperature(ThermoFrame, ThermoMeasureResult)
+     */
+    boolean onFrameReceived(ThermoFrame frame);
+}
@@ -0,0 +1,155 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>ThermoFramePool</code> 数据帧缓冲池
+ * <p>
+ * 创建时一次性分配固定数量的 {@link ThermoFrame}，之后取出和归还数据帧都不会分配新的对象。
+ * 数据帧带有引用计数，调用 {@link ThermoFrame#release()} 使引用计数为 0 时自动归还。
+ * <p>
+ * 调试模式下归还的数据帧会被填充为 NaN，再访问已归还的数据帧会抛出 {@link IllegalStateException}，
+ * 用于检查跨线程、跨处理阶段使用数据帧时的错误。数据帧被再次取出之后，旧引用的访问不再能被发现，
+ * 需要时使用 {@link ThermoFrame#checkGeneration(int)} 检查。
+ * <p>
+ * <code>ThermoFramePool</code> 是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFrame
+ * @see     Thermometer#getFrames(ThermoFramePool, ThermoFrameListener)
+ * @since   2.1
+ */
+public class ThermoFramePool {
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private final boolean debug;
+    private final ArrayBlockingQueue<ThermoFrame> frames;
+
+    /** 帧缓冲池耗尽时丢弃的数据帧数量 */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * ThermoFramePool 构造方法
+     *
+     * @param width 数据帧宽度（列数）
+     * @param height 数据帧高度（行数）
+     * @param capacity 数据帧数量
+     */
+    public ThermoFramePool(int width, int height, int capacity) {
+        this(width, height, capacity, false);
+    }
+
+    /**
+     * ThermoFramePool 构造方法
+     *
+     * @param width 数据帧宽度（列数）
+     * @param height 数据帧高度（行数）
+     * @param capacity 数据帧数量
+     * @param debug 是否检查访问已归还的数据帧
+     */
+    public ThermoFramePool(int width, int height, int capacity, boolean debug) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.debug = debug;
+        this.frames = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            frames.offer(new ThermoFrame(new float[width * height], width, height, width, this));
+        }
+    }
+
+    /**
+     * 取出一个数据帧，引用计数为 1
+     *
+     * @return 如果帧缓冲池已经耗尽返回 null，否则返回数据帧
+     */
+    public ThermoFrame acquire() {
+        ThermoFrame frame = frames.poll();
+        if (frame != null) {
+            frame.acquired();
+        }
+        return frame;
+    }
+
+    /** 引用计数为 0 的数据帧回到帧缓冲池 */
+    void recycle(ThermoFrame frame) {
+        if (debug) {
+            Arrays.fill(frame.getDataUnchecked(), Float.NaN);
+        }
+        frames.offer(frame);
+    }
+
+    /** Returns the width of frames in this pool. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of frames in this pool. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the number of frames owned by this pool. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of frames that can be acquired now. */
+    public int getAvailableCount() {
+        return frames.size();
+    }
+
+    /** Returns the number of frames dropped because this pool was exhausted. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** Returns true if use-after-release detection is enabled. */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * 把 {@link TemperaturesListener} 接收到的 float 二维数组复制到帧缓冲池的数据帧再输出给 {@link ThermoFrameListener}
+     * <p>
+     * <code>onFrameReceived</code> 返回后数据帧被释放一次，需要继续使用时应在返回前调用 {@link ThermoFrame#retain()}。
+     * 帧缓冲池耗尽时丢弃当前数据帧并继续获取下一帧。
+     */
+    static final class ListenerAdapter implements TemperaturesListener {
+        private final ThermoFramePool pool;
+        private final ThermoFrameListener listener;
+        private long sequence;
+
+        ListenerAdapter(ThermoFramePool pool, ThermoFrameListener listener) {
+            this.pool = pool;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean onTemperaturesReceived(float[][] data) {
+            long timestamp = SystemClock.elapsedRealtimeNanos();
+            long seq = sequence++;
+            ThermoFrame frame = pool.acquire();
+            if (frame == null) {
+                pool.droppedCount.incrementAndGet();
+                return false;
+            }
+            try {
+                frame.copyFrom(data);
+                frame.setSequence(seq);
+                frame.setTimestamp(timestamp);
+                return listener.onFrameReceived(frame);
+            } finally {
+                frame.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.telpo.thermometry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.telpo.thermometry.ThermoFrameRecorder.*;
+
+/**
+ * <code>ThermoFrameReader</code> 录制文件读取
+ * <p>
+ * 以内存映射方式读取 {@link ThermoFrameRecorder} 录制的文件，按顺序逐帧读取，或按采集时间通过稀疏索引定位。
+ * 读取只读取打开文件时已经完整写入的记录。
+ * <pre>
+ * while (reader.next()) {
+ *     reader.read(data);
+ * }
+ * </pre>
+ * <code>ThermoFrameReader</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     ThermoFrameRecorder
+ * @see     ThermoReplayThermometer
+ * @since   2.1
+ */
+public class ThermoFrameReader implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final FloatBuffer floats;
+
+    private final int indexCount;
+    private final long frameCount;
+    private final int dataStart;
+    private final int dataEnd;
+
+    /** 当前记录的位置，-1 表示还没有调用 {@link #next()} */
+    private int current = -1;
+    /** 下一条记录的位置 */
+    private int next;
+
+    private long timestamp;
+    private int width, height;
+    private float ambientTemperature;
+
+    /**
+     * 打开录制文件
+     *
+     * @param path 录制文件
+     * @throws IOException 文件不存在或格式错误
+     */
+    public ThermoFrameReader(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("invalid recording size " + length);
+            }
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(OFFSET_MAGIC) != MAGIC) {
+                throw new IOException("not a thermometry recording");
+            }
+            if (buffer.getInt(OFFSET_VERSION) != VERSION) {
+                throw new IOException("unsupported recording version " + buffer.getInt(OFFSET_VERSION));
+            }
+            this.indexCount = buffer.getInt(OFFSET_INDEX_COUNT);
+            this.frameCount = buffer.getLong(OFFSET_FRAME_COUNT);
+            this.dataStart = (int) buffer.getLong(OFFSET_DATA_START);
+            this.dataEnd = (int) buffer.getLong(OFFSET_DATA_END);
+            if (dataStart < HEADER_SIZE + indexCount * INDEX_ENTRY_SIZE || dataEnd < dataStart || dataEnd > length) {
+                throw new IOException("corrupted recording header");
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        this.floats = buffer.asFloatBuffer();
+        this.next = dataStart;
+    }
+
+    /** Returns the number of frames in this recording. */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 移动到下一条记录
+     *
+     * @return 如果已经读完返回 false
+     */
+    public boolean next() {
+        if (next + RECORD_HEADER_SIZE > dataEnd) {
+            return false;
+        }
+        int w = buffer.getInt(next + 8);
+        int h = buffer.getInt(next + 12);
+        int end = next + RECORD_HEADER_SIZE + 4 * w * h;
+        if (w <= 0 || h <= 0 || end > dataEnd) {
+            return false;
+        }
+        current = next;
+        next = end;
+        timestamp = buffer.getLong(current);
+        width = w;
+        height = h;
+        ambientTemperature = buffer.getFloat(current + 16);
+        return true;
+    }
+
+    /** 回到第一条记录之前 */
+    public void rewind() {
+        current = -1;
+        next = dataStart;
+    }
+
+    /**
+     * 定位到采集时间不早于 <code>timestamp</code> 的第一条记录之前，之后调用 {@link #next()} 返回该记录
+     * <p>
+     * 先在稀疏索引中二分查找，再顺序跳过最多一个索引间隔的记录
+     *
+     * @param timestamp 采集时间，单位为纳秒
+     */
+    public void seek(long timestamp) {
+        int lo = 0, hi = indexCount - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buffer.getLong(HEADER_SIZE + mid * INDEX_ENTRY_SIZE) <= timestamp) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        current = -1;
+        next = found < 0 ? dataStart : (int) buffer.getLong(HEADER_SIZE + found * INDEX_ENTRY_SIZE + 8);
+        while (next + RECORD_HEADER_SIZE <= dataEnd && buffer.getLong(next) < timestamp) {
+            int w = buffer.getInt(next + 8), h = buffer.getInt(next + 12);
+            next += RECORD_HEADER_SIZE + 4 * w * h;
+        }
+    }
+
+    /** Returns the timestamp of the current record in nanoseconds. */
+    public long getTimestamp() {
+        checkCurrent();
+        return timestamp;
+    }
+
+    /** Returns the width of the current record. */
+    public int getWidth() {
+        checkCurrent();
+        return width;
+    }
+
+    /** Returns the height of the current record. */
+    public int getHeight() {
+        checkCurrent();
+        return height;
+    }
+
+    /** Returns the ambient temperature of the current record, NaN if not recorded. */
+    public float getAmbientTemperature() {
+        checkCurrent();
+        return ambientTemperature;
+    }
+
+    /**
+     * 读取当前记录的温度值
+     *
+     * @param out 大小必须和当前记录相同
+     */
+    public void read(float[][] out) {
+        checkCurrent();
+        if (out.length != height || out[0].length != width) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        int floatPosition = (current + RECORD_HEADER_SIZE) >> 2;
+        for (int y = 0; y < height; ++y) {
+            floats.position(floatPosition + y * width);
+            floats.get(out[y], 0, width);
+        }
+    }
+
+    /**
+     * 读取当前记录的温度值和采集时间
+     *
+     * @param out 大小必须和当前记录相同
+     */
+    public void read(ThermoFrame out) {
+        checkCurrent();
+        if (out.getWidth() != width || out.getHeight() != height) {
+            throw new IllegalArgumentException("frame size mismatch");
+        }
+        float[] data = out.getData();
+        int stride = out.getStride();
+        int floatPosition = (current + RECORD_HEADER_SIZE) >> 2;
+        for (int y = 0; y < height; ++y) {
+            floats.position(floatPosition + y * width);
+            floats.get(data, y * stride, width);
+        }
+        out.setTimestamp(timestamp);
+    }
+
+    private void checkCurrent() {
+        if (current < 0) {
+            throw new IllegalStateException("no current record");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
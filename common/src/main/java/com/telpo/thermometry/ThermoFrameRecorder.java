@@ -0,0 +1,303 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <code>ThermoFrameRecorder</code> 数据帧录制
+ * <p>
+ * 把温度阵列数据帧追加写入预先分配大小的内存映射文件，用于现场采集原始数据、分析误报。
+ * 写入只是内存复制，不会每帧调用系统调用，也不分配新的对象，可以在测温设备线程以满帧率录制。
+ * <p>
+ * 文件格式（小端字节序）：
+ * <ul>
+ *     <li>文件头 {@value #HEADER_SIZE} 字节：魔数、版本、索引间隔、索引容量、索引数量、帧数、数据区起止位置</li>
+ *     <li>稀疏索引：每 {@link #getIndexInterval()} 帧一项，每项为采集时间和记录位置，各 8 字节</li>
+ *     <li>记录：采集时间（8 字节）、宽、高、环境温度（各 4 字节），然后是按行排列的 float 温度值</li>
+ * </ul>
+ * 索引按构造时给出的数据帧大小预留，实际数据帧更小而索引写满时，每隔一项保留、索引间隔加倍，
+ * 索引继续覆盖整个文件，定位时顺序跳过的记录数最多为当前索引间隔。
+ * <p>
+ * 文件写满后不再写入，参见 {@link #isFull()}。关闭时把数据写回文件，文件大小保持预先分配的大小，有效数据以文件头为准。
+ * <p>
+ * <code>ThermoFrameRecorder</code> 不是线程安全的，应只在获取数据帧的线程写入。
+ *
+ * @author  gfm
+ * @see     ThermoFrameReader
+ * @see     ThermoReplayThermometer
+ * @since   2.1
+ */
+public class ThermoFrameRecorder implements TemperaturesListener, ThermoFrameListener, Closeable {
+    static final int MAGIC = 0x4D524654; // "TFRM"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 20;
+
+    // 文件头各字段的位置
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_INDEX_INTERVAL = 8;
+    static final int OFFSET_INDEX_CAPACITY = 12;
+    static final int OFFSET_INDEX_COUNT = 16;
+    static final int OFFSET_FRAME_COUNT = 24;
+    static final int OFFSET_DATA_START = 32;
+    static final int OFFSET_DATA_END = 40;
+
+    /** 默认每多少帧记录一个索引项 */
+    public static final int DEFAULT_INDEX_INTERVAL = 16;
+
+    /** 没有给出数据帧大小时，按该大小的数据帧预留索引 */
+    static final int DEFAULT_FRAME_SIZE = 32;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final FloatBuffer floats;
+    private final ThermometerInfoSampler ambientSampler;
+
+    private int indexInterval;
+    private final int indexCapacity;
+    private int indexCount;
+    private long frameCount;
+    private long droppedCount;
+    private final int dataStart;
+    private int position;
+    private boolean full;
+    private boolean closed;
+
+    /**
+     * 创建录制文件，不记录环境温度
+     *
+     * @param path 录制文件，已存在时被覆盖
+     * @param capacity 预先分配的文件大小，单位为字节，不能超过 2GB
+     */
+    public ThermoFrameRecorder(File path, long capacity) throws IOException {
+        this(path, capacity, DEFAULT_INDEX_INTERVAL, null);
+    }
+
+    /**
+     * ThermoFrameRecorder 构造方法，按 32x32 的数据帧预留索引
+     *
+     * @param path 录制文件，已存在时被覆盖
+     * @param capacity 预先分配的文件大小，单位为字节，不能超过 2GB
+     * @param indexInterval 每多少帧记录一个索引项
+     * @param ambientSampler 用于记录环境温度，可以为 null，此时环境温度记录为 NaN
+     */
+    public ThermoFrameRecorder(File path, long capacity, int indexInterval,
+                               ThermometerInfoSampler ambientSampler) throws IOException {
+        this(path, capacity, DEFAULT_FRAME_SIZE, DEFAULT_FRAME_SIZE, indexInterval, ambientSampler);
+    }
+
+    /**
+     * ThermoFrameRecorder 构造方法
+     *
+     * @param path 录制文件，已存在时被覆盖
+     * @param capacity 预先分配的文件大小，单位为字节，不能超过 2GB
+     * @param frameWidth 录制的数据帧宽度，用于预留索引
+     * @param frameHeight 录制的数据帧高度，用于预留索引
+     * @param indexInterval 每多少帧记录一个索引项
+     * @param ambientSampler 用于记录环境温度，可以为 null，此时环境温度记录为 NaN
+     */
+    public ThermoFrameRecorder(File path, long capacity, int frameWidth, int frameHeight, int indexInterval,
+                               ThermometerInfoSampler ambientSampler) throws IOException {
+        if (capacity <= HEADER_SIZE || capacity > Integer.MAX_VALUE || indexInterval <= 0) {
+            throw new IllegalArgumentException("invalid capacity " + capacity + " or index interval " + indexInterval);
+        }
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            throw new IllegalArgumentException("invalid frame size " + frameWidth + "x" + frameHeight);
+        }
+        this.indexInterval = indexInterval;
+        this.ambientSampler = ambientSampler;
+        long recordSize = RECORD_HEADER_SIZE + 4L * frameWidth * frameHeight;
+        this.indexCapacity = (int) Math.max(1, (capacity - HEADER_SIZE) / recordSize / indexInterval + 1);
+        this.dataStart = HEADER_SIZE + indexCapacity * INDEX_ENTRY_SIZE;
+        if (dataStart >= capacity) {
+            throw new IllegalArgumentException("capacity too small");
+        }
+
+        this.file = new RandomAccessFile(path, "rw");
+        try {
+            file.setLength(0);
+            file.setLength(capacity);
+            this.channel = file.getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.floats = buffer.asFloatBuffer();
+        this.position = dataStart;
+
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putInt(OFFSET_INDEX_INTERVAL, indexInterval);
+        buffer.putInt(OFFSET_INDEX_CAPACITY, indexCapacity);
+        buffer.putInt(OFFSET_INDEX_COUNT, 0);
+        buffer.putLong(OFFSET_FRAME_COUNT, 0);
+        buffer.putLong(OFFSET_DATA_START, dataStart);
+        buffer.putLong(OFFSET_DATA_END, dataStart);
+    }
+
+    @Override
+    public boolean onTemperaturesReceived(float[][] data) {
+        write(data, SystemClock.elapsedRealtimeNanos());
+        return false;
+    }
+
+    @Override
+    public boolean onFrameReceived(ThermoFrame frame) {
+        write(frame);
+        return false;
+    }
+
+    /**
+     * 写入一帧数据
+     *
+     * @param data 温度阵列数据帧
+     * @param timestamp 采集时间，单位为纳秒
+     * @return 如果文件已满或已关闭返回 false
+     */
+    public boolean write(float[][] data, long timestamp) {
+        int height = data.length;
+        int width = data[0].length;
+        if (!beginRecord(timestamp, width, height)) {
+            return false;
+        }
+        int floatPosition = (position + RECORD_HEADER_SIZE) >> 2;
+        for (int y = 0; y < height; ++y) {
+            floats.position(floatPosition + y * width);
+            floats.put(data[y], 0, width);
+        }
+        endRecord(width, height);
+        return true;
+    }
+
+    /**
+     * 写入一帧数据，使用数据帧的采集时间
+     *
+     * @param frame 温度阵列数据帧
+     * @return 如果文件已满或已关闭返回 false
+     */
+    public boolean write(ThermoFrame frame) {
+        int width = frame.getWidth(), height = frame.getHeight(), stride = frame.getStride();
+        if (!beginRecord(frame.getTimestamp(), width, height)) {
+            return false;
+        }
+        float[] data = frame.getData();
+        int floatPosition = (position + RECORD_HEADER_SIZE) >> 2;
+        if (stride == width) {
+            floats.position(floatPosition);
+            floats.put(data, 0, width * height);
+        } else {
+            for (int y = 0; y < height; ++y) {
+                floats.position(floatPosition + y * width);
+                floats.put(data, y * stride, width);
+            }
+        }
+        endRecord(width, height);
+        return true;
+    }
+
+    private boolean beginRecord(long timestamp, int width, int height) {
+        if (closed || position + RECORD_HEADER_SIZE + 4L * width * height > buffer.capacity()) {
+            full = !closed;
+            droppedCount++;
+            return false;
+        }
+        if (frameCount % indexInterval == 0 && indexCount == indexCapacity && indexCapacity > 1) {
+            compactIndex();
+        }
+        if (frameCount % indexInterval == 0 && indexCount < indexCapacity) {
+            int entry = HEADER_SIZE + indexCount * INDEX_ENTRY_SIZE;
+            buffer.putLong(entry, timestamp);
+            buffer.putLong(entry + 8, position);
+            indexCount++;
+        }
+        float ambient = ambientSampler != null ? ambientSampler.getAmbientTemperature() : Float.NaN;
+        buffer.putLong(position, timestamp);
+        buffer.putInt(position + 8, width);
+        buffer.putInt(position + 12, height);
+        buffer.putFloat(position + 16, ambient);
+        return true;
+    }
+
+    // 索引写满时只保留第 0、2、4... 项，索引间隔加倍，之后的索引项仍然落在新间隔的整数倍上
+    private void compactIndex() {
+        for (int i = 2, j = 1; i < indexCount; i += 2, ++j) {
+            int from = HEADER_SIZE + i * INDEX_ENTRY_SIZE, to = HEADER_SIZE + j * INDEX_ENTRY_SIZE;
+            buffer.putLong(to, buffer.getLong(from));
+            buffer.putLong(to + 8, buffer.getLong(from + 8));
+        }
+        indexCount = (indexCount + 1) / 2;
+        indexInterval *= 2;
+        buffer.putInt(OFFSET_INDEX_COUNT, indexCount);
+        buffer.putInt(OFFSET_INDEX_INTERVAL, indexInterval);
+    }
+
+    // 记录写完后再更新文件头，读取时不会看到不完整的记录
+    private void endRecord(int width, int height) {
+        position += RECORD_HEADER_SIZE + 4 * width * height;
+        frameCount++;
+        buffer.putInt(OFFSET_INDEX_COUNT, indexCount);
+        buffer.putLong(OFFSET_FRAME_COUNT, frameCount);
+        buffer.putLong(OFFSET_DATA_END, position);
+    }
+
+    /**
+     * 把已写入的数据写回文件，会调用系统调用，不要每帧调用
+     */
+    public void flush() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    /** Returns the number of frames written. */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /** Returns the number of frames not written because the file was full or closed. */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /** Returns the number of frames between two index entries, doubled each time the index fills up. */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    /** Returns the number of bytes used in the file, including the header and the index. */
+    public long getSize() {
+        return position;
+    }
+
+    /** Returns true if the last frame could not be written because the file was full. */
+    public boolean isFull() {
+        return full;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+        } finally {
+            channel.close();
+            file.close();
+        }
+    }
+}
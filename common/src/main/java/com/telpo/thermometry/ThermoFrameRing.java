@@ -0,0 +1,146 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <code>ThermoFrameRing</code> 单生产者单消费者数据帧环形缓冲
+ * <p>
+ * 测温设备线程（生产者）把温度阵列复制到预先分配的数据帧后放入环形缓冲，处理线程（消费者）按顺序取出，两边都不加锁也不等待。
+ * 消费者跟不上时，最旧的数据帧被新数据帧覆盖，生产者永远不会因为消费者而阻塞。
+ * <p>
+ * 环形缓冲的每个槽总是持有一个数据帧，生产者和消费者各自另外持有一个，放入和取出都是用 <code>getAndSet</code> 交换数据帧的所有权，
+ * 所以一共分配容量加 2 个数据帧，之后不再分配新的对象。数据帧的帧序号用于判断是否被生产者超圈覆盖。
+ * <p>
+ * 只能有一个线程调用 {@link #offer}，一个线程调用 {@link #poll}。
+ *
+ * @author  gfm
+ * @see     ThermoRingAcquisition
+ * @since   2.1
+ */
+public class ThermoFrameRing {
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private final AtomicReferenceArray<ThermoFrame> slots;
+
+    /** 下一个要写入的帧序号，只由生产者修改 */
+    private volatile long head;
+
+    /** 生产者持有的空闲数据帧 */
+    private ThermoFrame producerFrame;
+
+    /** 下一个要读取的帧序号，只由消费者访问 */
+    private long tail;
+
+    /** 消费者持有的数据帧，即上一次 {@link #poll} 返回的数据帧 */
+    private ThermoFrame consumerFrame;
+
+    private volatile long consumedCount;
+    private volatile long overwrittenCount;
+
+    /**
+     * ThermoFrameRing 构造方法
+     *
+     * @param width 数据帧宽度（列数）
+     * @param height 数据帧高度（行数）
+     * @param capacity 环形缓冲容量，消费者最多落后的帧数
+     */
+    public ThermoFrameRing(int width, int height, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            slots.set(i, newFrame());
+        }
+        this.producerFrame = newFrame();
+        this.consumerFrame = newFrame();
+    }
+
+    private ThermoFrame newFrame() {
+        ThermoFrame frame = new ThermoFrame(width, height);
+        frame.setSequence(-1);
+        return frame;
+    }
+
+    /**
+     * 生产者放入一帧数据，不会阻塞
+     *
+     * @param data 温度阵列数据帧，大小必须和环形缓冲的数据帧相同
+     */
+    public void offer(float[][] data) {
+        long h = head;
+        ThermoFrame frame = producerFrame;
+        frame.copyFrom(data);
+        frame.setSequence(h);
+        frame.setTimestamp(SystemClock.elapsedRealtimeNanos());
+        // 换出的数据帧可能是未读取的旧帧，也可能是消费者用完换回的数据帧，都可以直接覆盖
+        producerFrame = slots.getAndSet((int) (h % capacity), frame);
+        head = h + 1;
+    }
+
+    /**
+     * 消费者取出下一帧数据，不会阻塞
+     * <p>
+     * 返回的数据帧属于消费者，在下一次调用 <code>poll</code> 之前有效，之后会被交还给生产者重复使用。
+     *
+     * @return 如果没有新的数据帧返回 null
+     */
+    public ThermoFrame poll() {
+        long h = head;
+        if (tail >= h) {
+            return null;
+        }
+        if (h - tail > capacity) {
+            // 生产者已经超圈，跳过被覆盖的数据帧
+            overwrittenCount += h - capacity - tail;
+            tail = h - capacity;
+        }
+
+        ThermoFrame frame = slots.getAndSet((int) (tail % capacity), consumerFrame);
+        long sequence = frame.getSequence();
+        if (sequence > tail) {
+            // 读取 head 之后生产者又超圈覆盖了这个槽，中间的数据帧视为被覆盖
+            overwrittenCount += sequence - tail;
+        }
+        tail = sequence + 1;
+        consumerFrame = frame;
+        consumedCount++;
+        return frame;
+    }
+
+    /** Returns the width of frames in this ring. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of frames in this ring. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the capacity of this ring. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Returns the number of frames offered by the producer. */
+    public long getProducedCount() {
+        return head;
+    }
+
+    /** Returns the number of frames returned by {@link #poll()}. */
+    public long getConsumedCount() {
+        return consumedCount;
+    }
+
+    /** Returns the number of frames overwritten before the consumer read them. */
+    public long getOverwrittenCount() {
+        return overwrittenCount;
+    }
+}
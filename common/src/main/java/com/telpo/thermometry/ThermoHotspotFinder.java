@@ -0,0 +1,290 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoHotspotFinder</code> 最高温度点查找
+ * <p>
+ * 从温度阵列中找出温度最高的 K 个点，可以指定非极大值抑制半径，使结果点之间的距离大于该半径。
+ * 候选点打包成 long（高 32 位为可排序的温度值，低 32 位为坐标），用固定大小的堆选择，不创建 {@link TemperaturePoint} 对象，
+ * 只有调用 {@link #getPoint(int)} 时才会创建。
+ * <p>
+ * 工作缓冲在创建时或温度阵列大小变化时分配，之后每帧查找不再分配新的对象。
+ * <code>ThermoHotspotFinder</code> 不是线程安全的。
+ *
+ * @author  gfm
+ * @see     TemperaturePoint
+ * @since   2.1
+ */
+public class ThermoHotspotFinder {
+    private final int k;
+    private final int radius;
+
+    /** 不抑制时使用的最小堆，保存当前最高的 K 个点 */
+    private final long[] heap;
+
+    /** 抑制时使用的最大堆，保存所有候选点 */
+    private long[] candidates;
+
+    /** 按温度从高到低排列的结果 */
+    private final long[] results;
+    private int count;
+
+    /**
+     * ThermoHotspotFinder 构造方法，不进行非极大值抑制
+     *
+     * @param k 最多输出的点数
+     */
+    public ThermoHotspotFinder(int k) {
+        this(k, 0);
+    }
+
+    /**
+     * ThermoHotspotFinder 构造方法
+     *
+     * @param k 最多输出的点数
+     * @param suppressionRadius 非极大值抑制半径，结果点之间的欧氏距离大于该值，为 0 时不抑制
+     */
+    public ThermoHotspotFinder(int k, int suppressionRadius) {
+        if (k <= 0 || k > 0xFFFF || suppressionRadius < 0) {
+            throw new IllegalArgumentException("invalid k " + k + " or radius " + suppressionRadius);
+        }
+        this.k = k;
+        this.radius = suppressionRadius;
+        this.heap = new long[k];
+        this.results = new long[k];
+    }
+
+    /**
+     * 查找最高温度点
+     *
+     * @param frame 温度阵列数据帧，宽高不能超过 65535
+     * @return 找到的点数，使用 {@link #getX}、{@link #getY}、{@link #getValue} 获取结果
+     */
+    public int find(ThermoFrame frame) {
+        return find(null, frame.getData(), frame.getStride(), frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * 查找最高温度点
+     *
+     * @param data 温度阵列数据帧，宽高不能超过 65535
+     * @return 找到的点数，使用 {@link #getX}、{@link #getY}、{@link #getValue} 获取结果
+     */
+    public int find(float[][] data) {
+        if (data == null || data.length == 0 || data[0] == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        return find(data, null, 0, data[0].length, data.length);
+    }
+
+    /** Returns the number of points found by the last search. */
+    public int getCount() {
+        return count;
+    }
+
+    /** Returns the packed entry of the i-th hottest point, see {@link #pack}. */
+    public long getPacked(int index) {
+        checkIndex(index);
+        return results[index];
+    }
+
+    /** Returns the x coordinate of the i-th hottest point. */
+    public int getX(int index) {
+        return unpackX(getPacked(index));
+    }
+
+    /** Returns the y coordinate of the i-th hottest point. */
+    public int getY(int index) {
+        return unpackY(getPacked(index));
+    }
+
+    /** Returns the temperature of the i-th hottest point. */
+    public float getValue(int index) {
+        return unpackValue(getPacked(index));
+    }
+
+    /**
+     * 把第 i 个点写入调用者提供的 {@link TemperaturePoint}
+     */
+    public void getPoint(int index, TemperaturePoint out) {
+        long packed = getPacked(index);
+        out.set(unpackX(packed), unpackY(packed));
+        out.value = unpackValue(packed);
+    }
+
+    /**
+     * 创建第 i 个点的 {@link TemperaturePoint}
+     *
+     * @return 返回新创建的温度点对象
+     */
+    public TemperaturePoint getPoint(int index) {
+        long packed = getPacked(index);
+        return new TemperaturePoint(unpackX(packed), unpackY(packed), unpackValue(packed));
+    }
+
+    /**
+     * 打包坐标和温度值，按 long 比较大小时与按温度值比较一致
+     *
+     * @param x 0 到 65535
+     * @param y 0 到 65535
+     * @param value 温度值，不能为 NaN
+     */
+    public static long pack(int x, int y, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int key = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+        return ((long) key << 32) | ((long) (y & 0xFFFF) << 16) | (x & 0xFFFF);
+    }
+
+    /** Returns the x coordinate of a packed entry. */
+    public static int unpackX(long packed) {
+        return (int) (packed & 0xFFFF);
+    }
+
+    /** Returns the y coordinate of a packed entry. */
+    public static int unpackY(long packed) {
+        return (int) ((packed >>> 16) & 0xFFFF);
+    }
+
+    /** Returns the temperature of a packed entry. */
+    public static float unpackValue(long packed) {
+        int key = (int) (packed >> 32);
+        return Float.intBitsToFloat(key ^ ((key >> 31) & 0x7FFFFFFF));
+    }
+
+    private int find(float[][] data, float[] flat, int stride, int width, int height) {
+        if (width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException("frame too large");
+        }
+        count = radius > 0
+                ? findSuppressed(data, flat, stride, width, height)
+                : findTopK(data, flat, stride, width, height);
+        return count;
+    }
+
+    // 最小堆保存当前最高的 K 个点，比堆顶高的点替换堆顶
+    private int findTopK(float[][] data, float[] flat, int stride, int width, int height) {
+        int size = 0;
+        for (int y = 0; y < height; ++y) {
+            float[] row = data != null ? data[y] : flat;
+            int start = data != null ? 0 : y * stride;
+            for (int x = 0; x < width; ++x) {
+                float value = row[start + x];
+                if (value != value) {
+                    continue; // NaN
+                }
+                long packed = pack(x, y, value);
+                if (size < k) {
+                    heap[size] = packed;
+                    siftUpMin(heap, size++);
+                } else if (packed > heap[0]) {
+                    heap[0] = packed;
+                    siftDownMin(heap, 0, size);
+                }
+            }
+        }
+
+        // 依次取出堆顶，从后往前填充得到从高到低的顺序
+        for (int n = size; n > 0; --n) {
+            results[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDownMin(heap, 0, n - 1);
+        }
+        return size;
+    }
+
+    // 所有点建立最大堆，从高到低取出，与已选点距离不大于半径的点被抑制
+    private int findSuppressed(float[][] data, float[] flat, int stride, int width, int height) {
+        int total = width * height;
+        if (candidates == null || candidates.length < total) {
+            candidates = new long[total];
+        }
+        int size = 0;
+        for (int y = 0; y < height; ++y) {
+            float[] row = data != null ? data[y] : flat;
+            int start = data != null ? 0 : y * stride;
+            for (int x = 0; x < width; ++x) {
+                float value = row[start + x];
+                if (value == value) {
+                    candidates[size++] = pack(x, y, value);
+                }
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; --i) {
+            siftDownMax(candidates, i, size);
+        }
+
+        int found = 0;
+        int radius2 = radius * radius;
+        while (size > 0 && found < k) {
+            long top = candidates[0];
+            candidates[0] = candidates[--size];
+            siftDownMax(candidates, 0, size);
+
+            int x = unpackX(top), y = unpackY(top);
+            boolean suppressed = false;
+            for (int i = 0; i < found; ++i) {
+                int dx = unpackX(results[i]) - x, dy = unpackY(results[i]) - y;
+                if (dx * dx + dy * dy <= radius2) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                results[found++] = top;
+            }
+        }
+        return found;
+    }
+
+    private static void siftUpMin(long[] a, int i) {
+        long v = a[i];
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (a[p] <= v) {
+                break;
+            }
+            a[i] = a[p];
+            i = p;
+        }
+        a[i] = v;
+    }
+
+    private static void siftDownMin(long[] a, int i, int size) {
+        long v = a[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && a[c + 1] < a[c]) {
+                ++c;
+            }
+            if (v <= a[c]) {
+                break;
+            }
+            a[i] = a[c];
+            i = c;
+        }
+        a[i] = v;
+    }
+
+    private static void siftDownMax(long[] a, int i, int size) {
+        long v = a[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && a[c + 1] > a[c]) {
+                ++c;
+            }
+            if (v >= a[c]) {
+                break;
+            }
+            a[i] = a[c];
+            i = c;
+        }
+        a[i] = v;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+    }
+}
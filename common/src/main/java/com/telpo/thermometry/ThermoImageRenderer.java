@@ -0,0 +1,514 @@
+package com.telpo.thermometry;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * <code>ThermoImageRenderer</code> 热成像绘制器
+ * <p>
+ * 与 {@link ThermoFactory#createThermoImage} 不同，绘制器把热成像绘制到调用者提供的位图或像素数组，
+ * 按行批量写入像素，并缓存额外绘制使用的 <code>Canvas</code> 和 <code>Paint</code>。
+ * <p>
+ * 调用 {@link #render(float[][])} 时绘制器使用内部的位图缓冲池轮流绘制，UI 线程显示上一张位图的同时可以绘制下一张，
+ * 稳定运行后不再分配新的对象。缓冲池大小默认为 3，调用者持有的位图在之后第 <code>bufferCount</code> 次绘制时会被覆盖。
+ * <p>
+ * 默认每个温度点绘制为 <code>cellSize * cellSize</code> 的色块。调用 {@link #setOutputSize} 指定热成像大小后，
+ * 绘制器对温度阵列进行定点数插值（{@link #NEAREST}、{@link #BILINEAR} 或 {@link #BICUBIC}），一次绘制出指定大小的热成像，
+ * 显示时不需要再缩放。
+ * <p>
+ * <code>ThermoImageRenderer</code> 不是线程安全的，应该在同一线程调用绘制方法。
+ *
+ * @author  gfm
+ * @see     ThermoPalette
+ * @see     ThermoFactory#createThermoImage
+ * @since   2.1
+ */
+public class ThermoImageRenderer {
+    @IntDef({NEAREST, BILINEAR, BICUBIC})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Interpolation {}
+
+    /**
+     * 最近邻插值
+     * <p>Use with {@link #setInterpolation}
+     */
+    public static final int NEAREST = 0;
+
+    /**
+     * 双线性插值
+     * <p>Use with {@link #setInterpolation}
+     */
+    public static final int BILINEAR = 1;
+
+    /**
+     * 双三次插值（Catmull-Rom）
+     * <p>Use with {@link #setInterpolation}
+     */
+    public static final int BICUBIC = 2;
+
+    /** 定点数小数位数 */
+    private static final int FRACTION_BITS = 8;
+    private static final int ONE = 1 << FRACTION_BITS;
+    private static final int HALF = ONE >> 1;
+    /** 两次定点数乘法后的 0.5，用于垂直插值的四舍五入 */
+    private static final int HALF_SQUARED = 1 << (FRACTION_BITS * 2 - 1);
+
+    /** 默认每个温度点绘制的像素边长 */
+    public static final int DEFAULT_CELL_SIZE = 10;
+
+    /** 默认位图缓冲池大小 */
+    public static final int DEFAULT_BUFFER_COUNT = 3;
+
+    private final ThermoPalette palette;
+    private final int cellSize;
+    private final Bitmap[] buffers;
+    private int bufferIndex = -1;
+
+    private final Canvas canvas = new Canvas();
+    private final Paint paint = new Paint();
+    private Bitmap canvasBitmap;
+    private ThermoFactory.ThermoImageExtraDrawer extraDrawer;
+    private ThermoMetrics metrics;
+
+    /** 一行像素缓冲 */
+    private int[] rowPixels;
+
+    /** 指定的热成像大小，为 0 时按 cellSize 绘制色块 */
+    private int outputWidth;
+    private int outputHeight;
+    @Interpolation
+    private int interpolation = BILINEAR;
+
+    /** 插值表对应的温度阵列大小和热成像大小 */
+    private int tableRows, tableCols, tableWidth, tableHeight;
+    @Interpolation
+    private int tableInterpolation = -1;
+    private int taps;
+    private int[] xIndex, xWeight, yIndex, yWeight;
+
+    /** 定点数量化温度值和水平插值结果 */
+    private int[] levels;
+    private int[] horizontal;
+
+    /**
+     * ThermoImageRenderer 构造方法
+     * <p>
+     * 默认每个温度点绘制为 10 * 10 像素，位图缓冲池大小为 3
+     *
+     * @param palette 调色板颜色表
+     */
+    public ThermoImageRenderer(ThermoPalette palette) {
+        this(palette, DEFAULT_CELL_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * ThermoImageRenderer 构造方法
+     *
+     * @param palette 调色板颜色表
+     * @param cellSize 每个温度点绘制的像素边长
+     * @param bufferCount 位图缓冲池大小，使用 {@link #render(float[][])} 时至少为 2 才能避免覆盖正在显示的位图
+     */
+    public ThermoImageRenderer(ThermoPalette palette, int cellSize, int bufferCount) {
+        if (palette == null) {
+            throw new IllegalArgumentException("palette is null");
+        }
+        if (cellSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("cellSize and bufferCount must be positive");
+        }
+        this.palette = palette;
+        this.cellSize = cellSize;
+        this.buffers = new Bitmap[bufferCount];
+    }
+
+    /**
+     * 设置基本绘制完成后进行额外绘制的接口对象
+     *
+     * @param extraDrawer 额外绘制接口对象，可以为 null
+     */
+    public void setExtraDrawer(@Nullable ThermoFactory.ThermoImageExtraDrawer extraDrawer) {
+        this.extraDrawer = extraDrawer;
+    }
+
+    /**
+     * 设置性能统计，每次绘制记录 {@link ThermoMetrics#RENDER} 耗时
+     *
+     * @param metrics 性能统计，为 null 时不记录
+     */
+    public void setMetrics(@Nullable ThermoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 指定热成像大小
+     * <p>
+     * 温度阵列按 {@link #setInterpolation} 指定的插值方式缩放到指定大小，宽高都为 0 时恢复按色块绘制
+     *
+     * @param width 热成像宽度
+     * @param height 热成像高度
+     */
+    public void setOutputSize(int width, int height) {
+        if (width < 0 || height < 0 || (width == 0) != (height == 0)) {
+            throw new IllegalArgumentException("invalid output size " + width + "x" + height);
+        }
+        this.outputWidth = width;
+        this.outputHeight = height;
+    }
+
+    /**
+     * 设置缩放热成像时的插值方式，默认为 {@link #BILINEAR}
+     *
+     * @param interpolation One of {@link #NEAREST}, {@link #BILINEAR}, or {@link #BICUBIC}.
+     *
+     * @see #setOutputSize
+     */
+    public void setInterpolation(@Interpolation int interpolation) {
+        if (interpolation != NEAREST && interpolation != BILINEAR && interpolation != BICUBIC) {
+            throw new IllegalArgumentException("invalid interpolation " + interpolation);
+        }
+        this.interpolation = interpolation;
+    }
+
+    /** Returns the palette of this renderer. */
+    public ThermoPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     * 返回温度阵列数据帧对应的热成像宽度
+     *
+     * @param data 温度阵列数据帧
+     */
+    public int getImageWidth(float[][] data) {
+        return imageWidth(data[0].length);
+    }
+
+    /**
+     * 返回温度阵列数据帧对应的热成像高度
+     *
+     * @param data 温度阵列数据帧
+     */
+    public int getImageHeight(float[][] data) {
+        return imageHeight(data.length);
+    }
+
+    /**
+     * 返回温度阵列数据帧对应的热成像宽度
+     *
+     * @param frame 温度阵列数据帧
+     */
+    public int getImageWidth(ThermoFrame frame) {
+        return imageWidth(frame.getWidth());
+    }
+
+    /**
+     * 返回温度阵列数据帧对应的热成像高度
+     *
+     * @param frame 温度阵列数据帧
+     */
+    public int getImageHeight(ThermoFrame frame) {
+        return imageHeight(frame.getHeight());
+    }
+
+    /**
+     * 使用内部位图缓冲池绘制热成像
+     * <p>
+     * 返回的位图属于绘制器，在之后第 <code>bufferCount</code> 次调用时会被重新绘制，不要回收它
+     *
+     * @param data 温度阵列数据帧
+     * @return 绘制好的位图
+     *
+     * @see TemperaturesListener#onTemperaturesReceived
+     */
+    public Bitmap render(float[][] data) {
+        checkData(data);
+        Bitmap bitmap = obtainBuffer(getImageWidth(data), getImageHeight(data));
+        render(data, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 使用内部位图缓冲池绘制热成像
+     *
+     * @param frame 温度阵列数据帧
+     * @return 绘制好的位图
+     *
+     * @see #render(float[][])
+     * @see ThermoFrameListener#onFrameReceived
+     */
+    public Bitmap render(ThermoFrame frame) {
+        Bitmap bitmap = obtainBuffer(getImageWidth(frame), getImageHeight(frame));
+        render(frame, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 绘制热成像到调用者提供的位图
+     *
+     * @param data 温度阵列数据帧
+     * @param bitmap 可修改的 ARGB_8888 位图，大小必须等于 {@link #getImageWidth} * {@link #getImageHeight}
+     */
+    public void render(float[][] data, Bitmap bitmap) {
+        checkData(data);
+        render(data, null, 0, data.length, data[0].length, bitmap);
+    }
+
+    /**
+     * 绘制热成像到调用者提供的位图
+     *
+     * @param frame 温度阵列数据帧
+     * @param bitmap 可修改的 ARGB_8888 位图，大小必须等于 {@link #getImageWidth} * {@link #getImageHeight}
+     */
+    public void render(ThermoFrame frame, Bitmap bitmap) {
+        render(null, frame.getData(), frame.getStride(), frame.getHeight(), frame.getWidth(), bitmap);
+    }
+
+    /**
+     * 绘制热成像到调用者提供的像素数组
+     * <p>
+     * 像素数组不支持额外绘制，{@link #setExtraDrawer} 设置的接口对象不会被调用
+     *
+     * @param data 温度阵列数据帧
+     * @param pixels ARGB 像素数组
+     * @param offset 第一个像素在数组中的位置
+     * @param stride 每行像素在数组中的间隔，不能小于 {@link #getImageWidth}
+     */
+    public void render(float[][] data, int[] pixels, int offset, int stride) {
+        checkData(data);
+        render(data, null, 0, data.length, data[0].length, pixels, offset, stride);
+    }
+
+    /**
+     * 绘制热成像到调用者提供的像素数组
+     *
+     * @param frame 温度阵列数据帧
+     * @param pixels ARGB 像素数组
+     * @param offset 第一个像素在数组中的位置
+     * @param stride 每行像素在数组中的间隔，不能小于 {@link #getImageWidth}
+     *
+     * @see #render(float[][], int[], int, int)
+     */
+    public void render(ThermoFrame frame, int[] pixels, int offset, int stride) {
+        render(null, frame.getData(), frame.getStride(), frame.getHeight(), frame.getWidth(), pixels, offset, stride);
+    }
+
+    private int imageWidth(int cols) {
+        return outputWidth > 0 ? outputWidth : cols * cellSize;
+    }
+
+    private int imageHeight(int rows) {
+        return outputHeight > 0 ? outputHeight : rows * cellSize;
+    }
+
+    private Bitmap obtainBuffer(int width, int height) {
+        bufferIndex = (bufferIndex + 1) % buffers.length;
+        Bitmap bitmap = buffers[bufferIndex];
+        if (bitmap == null || bitmap.isRecycled() || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            buffers[bufferIndex] = bitmap;
+        }
+        return bitmap;
+    }
+
+    // 温度值来自 float 二维数组 data，或者按行保存在 flat 中
+    private void render(float[][] data, float[] flat, int srcStride, int rows, int cols, Bitmap bitmap) {
+        long start = metrics != null ? ThermoMetrics.now() : 0;
+        int width = imageWidth(cols);
+        int height = imageHeight(rows);
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            throw new IllegalArgumentException("bitmap size mismatch, required " + width + "x" + height);
+        }
+
+        int[] row = obtainRowPixels(width);
+        if (outputWidth > 0) {
+            prepareScale(data, flat, srcStride, rows, cols);
+            for (int y = 0; y < height; ++y) {
+                fillScaledRow(y, row, 0);
+                bitmap.setPixels(row, 0, width, 0, y, width, 1);
+            }
+        } else {
+            for (int i = 0; i < rows; ++i) {
+                if (data != null) {
+                    fillRow(data[i], 0, cols, row, 0);
+                } else {
+                    fillRow(flat, i * srcStride, cols, row, 0);
+                }
+                int top = i * cellSize;
+                for (int y = top; y < top + cellSize; ++y) {
+                    bitmap.setPixels(row, 0, width, 0, y, width, 1);
+                }
+            }
+        }
+
+        if (extraDrawer != null) {
+            if (canvasBitmap != bitmap) {
+                canvas.setBitmap(bitmap);
+                canvasBitmap = bitmap;
+            }
+            paint.reset();
+            extraDrawer.draw(canvas, paint, width, height);
+        }
+        if (metrics != null) {
+            metrics.recordSince(ThermoMetrics.RENDER, start);
+        }
+    }
+
+    private void render(float[][] data, float[] flat, int srcStride, int rows, int cols, int[] pixels, int offset, int stride) {
+        int width = imageWidth(cols);
+        int height = imageHeight(rows);
+        if (stride < width || offset < 0 || offset + (height - 1) * stride + width > pixels.length) {
+            throw new IllegalArgumentException("pixels too small");
+        }
+
+        long start = metrics != null ? ThermoMetrics.now() : 0;
+        if (outputWidth > 0) {
+            prepareScale(data, flat, srcStride, rows, cols);
+            for (int y = 0; y < height; ++y) {
+                fillScaledRow(y, pixels, offset + y * stride);
+            }
+        } else {
+            for (int i = 0; i < rows; ++i) {
+                int first = offset + i * cellSize * stride;
+                if (data != null) {
+                    fillRow(data[i], 0, cols, pixels, first);
+                } else {
+                    fillRow(flat, i * srcStride, cols, pixels, first);
+                }
+                for (int y = 1; y < cellSize; ++y) {
+                    System.arraycopy(pixels, first, pixels, first + y * stride, width);
+                }
+            }
+        }
+        if (metrics != null) {
+            metrics.recordSince(ThermoMetrics.RENDER, start);
+        }
+    }
+
+    // 根据一行温度值填充一行像素
+    private void fillRow(float[] temperatures, int start, int cols, int[] pixels, int offset) {
+        for (int j = start; j < start + cols; ++j) {
+            int color = palette.getColor(temperatures[j]);
+            int end = offset + cellSize;
+            for (int x = offset; x < end; ++x) {
+                pixels[x] = color;
+            }
+            offset = end;
+        }
+    }
+
+    // 量化温度值并完成水平插值，插值表在尺寸或插值方式变化时重建
+    private void prepareScale(float[][] data, float[] flat, int srcStride, int rows, int cols) {
+        if (tableRows != rows || tableCols != cols || tableWidth != outputWidth
+                || tableHeight != outputHeight || tableInterpolation != interpolation) {
+            taps = interpolation == BICUBIC ? 4 : interpolation == BILINEAR ? 2 : 1;
+            xIndex = new int[outputWidth * taps];
+            xWeight = new int[outputWidth * taps];
+            yIndex = new int[outputHeight * taps];
+            yWeight = new int[outputHeight * taps];
+            buildTable(cols, outputWidth, xIndex, xWeight);
+            buildTable(rows, outputHeight, yIndex, yWeight);
+            for (int i = 0; i < yIndex.length; ++i) {
+                yIndex[i] *= outputWidth; // 预先换算成水平插值结果的行偏移
+            }
+            levels = new int[rows * cols];
+            horizontal = new int[rows * outputWidth];
+            tableRows = rows;
+            tableCols = cols;
+            tableWidth = outputWidth;
+            tableHeight = outputHeight;
+            tableInterpolation = interpolation;
+        }
+
+        // 限制在调色板范围附近，避免插值时溢出
+        float compensate = palette.getCompensate();
+        int min = (palette.getStartLevel() - 1) << FRACTION_BITS;
+        int max = (palette.getStartLevel() + palette.size()) << FRACTION_BITS;
+        for (int i = 0, k = 0; i < rows; ++i) {
+            float[] temperatures = data != null ? data[i] : flat;
+            int start = data != null ? 0 : i * srcStride;
+            for (int j = start; j < start + cols; ++j) {
+                int level = (int) ((temperatures[j] + compensate) * (10.0F * ONE));
+                levels[k++] = level < min ? min : level > max ? max : level;
+            }
+        }
+
+        for (int i = 0; i < rows; ++i) {
+            int src = i * cols;
+            int dst = i * outputWidth;
+            for (int x = 0, t = 0; x < outputWidth; ++x) {
+                int sum = HALF;
+                for (int k = 0; k < taps; ++k, ++t) {
+                    sum += levels[src + xIndex[t]] * xWeight[t];
+                }
+                horizontal[dst + x] = sum >> FRACTION_BITS;
+            }
+        }
+    }
+
+    // 垂直插值并选择颜色，填充一行像素
+    private void fillScaledRow(int y, int[] pixels, int offset) {
+        int t = y * taps;
+        for (int x = 0; x < outputWidth; ++x) {
+            // 水平插值结果和权重都是定点数，乘积有 FRACTION_BITS * 2 位小数
+            int sum = HALF_SQUARED;
+            for (int k = 0; k < taps; ++k) {
+                sum += horizontal[yIndex[t + k] + x] * yWeight[t + k];
+            }
+            pixels[offset + x] = palette.getColorByLevel(sum >> (FRACTION_BITS * 2));
+        }
+    }
+
+    // 计算一个方向上每个输出像素对应的源下标和定点数权重，按像素中心对齐
+    private void buildTable(int srcSize, int dstSize, int[] index, int[] weight) {
+        for (int d = 0; d < dstSize; ++d) {
+            int t = d * taps;
+            if (taps == 1) {
+                index[t] = Math.min((int) ((2L * d + 1) * srcSize / (2L * dstSize)), srcSize - 1);
+                weight[t] = ONE;
+                continue;
+            }
+            long pos = (2L * d + 1) * srcSize * ONE / (2L * dstSize) - HALF;
+            int base = (int) (pos >> FRACTION_BITS);
+            float f = (pos & (ONE - 1)) / (float) ONE;
+            if (taps == 2) {
+                index[t] = clamp(base, srcSize);
+                index[t + 1] = clamp(base + 1, srcSize);
+                weight[t + 1] = Math.round(f * ONE);
+                weight[t] = ONE - weight[t + 1];
+            } else {
+                float f2 = f * f;
+                float f3 = f2 * f;
+                for (int k = 0; k < 4; ++k) {
+                    index[t + k] = clamp(base - 1 + k, srcSize);
+                }
+                weight[t] = Math.round((-f3 + 2 * f2 - f) * 0.5F * ONE);
+                weight[t + 2] = Math.round((-3 * f3 + 4 * f2 + f) * 0.5F * ONE);
+                weight[t + 3] = Math.round((f3 - f2) * 0.5F * ONE);
+                weight[t + 1] = ONE - weight[t] - weight[t + 2] - weight[t + 3];
+            }
+        }
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 ? 0 : index >= size ? size - 1 : index;
+    }
+
+    private int[] obtainRowPixels(int width) {
+        if (rowPixels == null || rowPixels.length < width) {
+            rowPixels = new int[width];
+        }
+        return rowPixels;
+    }
+
+    private static void checkData(float[][] data) {
+        if (data == null || data.length == 0 || data[0] == null || data[0].length == 0) {
+            throw new IllegalArgumentException("data invalid");
+        }
+    }
+}
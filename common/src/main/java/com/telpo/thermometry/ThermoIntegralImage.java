@@ -0,0 +1,156 @@
+package com.telpo.thermometry;
+
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * <code>ThermoIntegralImage</code> 温度阵列积分图
+ * <p>
+ * 每帧调用一次 {@link #update} 建立温度值和温度值平方的积分图，之后任意矩形区域的点数、平均值和方差都只需要常数时间，
+ * 同一帧需要统计多个区域（人脸、额头、内眼角、背景参考等）时不用重复扫描。
+ * <p>
+ * 矩形区域与 {@link Rect} 相同，包含 left、top，不包含 right、bottom，超出温度阵列的部分会被裁掉。
+ * 积分图数组只在温度阵列面积变化时重新分配，形状变化时重新清零。
+ *
+ * @author  gfm
+ * @see     ThermoRegionStatistics
+ * @see     ThermoAlgorithm#measureRegions
+ * @since   2.1
+ */
+public class ThermoIntegralImage {
+    private int width;
+    private int height;
+
+    /** 积分图，大小为 (width + 1) * (height + 1)，第一行和第一列为 0 */
+    private double[] sum;
+    private double[] sumSquares;
+
+    /**
+     * 使用温度阵列数据帧建立积分图
+     *
+     * @param frame 温度阵列数据帧
+     */
+    public void update(ThermoFrame frame) {
+        update(null, frame.getData(), frame.getStride(), frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * 使用温度阵列数据帧建立积分图
+     *
+     * @param data 温度阵列数据帧
+     */
+    public void update(float[][] data) {
+        if (data == null || data.length == 0 || data[0] == null) {
+            throw new IllegalArgumentException("data invalid");
+        }
+        update(data, null, 0, data[0].length, data.length);
+    }
+
+    private void update(float[][] data, float[] flat, int stride, int width, int height) {
+        int w1 = width + 1;
+        int size = w1 * (height + 1);
+        if (sum == null || sum.length != size) {
+            sum = new double[size];
+            sumSquares = new double[size];
+        } else if (width != this.width || height != this.height) {
+            // 面积相同但形状不同（例如 32x24 和 24x32），第一列的位置随行宽变化，需要重新清零
+            Arrays.fill(sum, 0);
+            Arrays.fill(sumSquares, 0);
+        }
+        this.width = width;
+        this.height = height;
+
+        for (int y = 0; y < height; ++y) {
+            float[] row = data != null ? data[y] : flat;
+            int start = data != null ? 0 : y * stride;
+            double rowSum = 0, rowSquares = 0;
+            int above = y * w1 + 1;
+            int index = above + w1;
+            for (int x = 0; x < width; ++x, ++above, ++index) {
+                double v = row[start + x];
+                rowSum += v;
+                rowSquares += v * v;
+                sum[index] = sum[above] + rowSum;
+                sumSquares[index] = sumSquares[above] + rowSquares;
+            }
+        }
+    }
+
+    /** Returns the width of the last frame. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of the last frame. */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 返回矩形区域内的点数
+     */
+    public int getCount(Rect rect) {
+        int left = Math.max(rect.left, 0), top = Math.max(rect.top, 0);
+        int right = Math.min(rect.right, width), bottom = Math.min(rect.bottom, height);
+        return left < right && top < bottom ? (right - left) * (bottom - top) : 0;
+    }
+
+    /**
+     * 返回矩形区域内的温度值之和
+     */
+    public double getSum(Rect rect) {
+        return regionSum(sum, rect);
+    }
+
+    /**
+     * 返回矩形区域内的平均温度
+     *
+     * @return 如果区域为空返回 NaN
+     */
+    public float getMean(Rect rect) {
+        int count = getCount(rect);
+        return count > 0 ? (float) (regionSum(sum, rect) / count) : Float.NaN;
+    }
+
+    /**
+     * 返回矩形区域内温度值的方差
+     *
+     * @return 如果区域为空返回 NaN
+     */
+    public float getVariance(Rect rect) {
+        int count = getCount(rect);
+        if (count == 0) {
+            return Float.NaN;
+        }
+        double mean = regionSum(sum, rect) / count;
+        return (float) Math.max(regionSum(sumSquares, rect) / count - mean * mean, 0);
+    }
+
+    /**
+     * 统计矩形区域的点数、平均温度和方差
+     *
+     * @param rect 矩形区域
+     * @param out 用于输出统计结果
+     */
+    public void getStatistics(Rect rect, ThermoRegionStatistics out) {
+        int count = getCount(rect);
+        if (count == 0) {
+            out.set(0, Float.NaN, Float.NaN);
+            return;
+        }
+        double mean = regionSum(sum, rect) / count;
+        double variance = Math.max(regionSum(sumSquares, rect) / count - mean * mean, 0);
+        out.set(count, (float) mean, (float) variance);
+    }
+
+    private double regionSum(double[] table, Rect rect) {
+        int left = Math.max(rect.left, 0), top = Math.max(rect.top, 0);
+        int right = Math.min(rect.right, width), bottom = Math.min(rect.bottom, height);
+        if (table == null || left >= right || top >= bottom) {
+            return 0;
+        }
+        int w1 = width + 1;
+        return table[bottom * w1 + right] - table[top * w1 + right] - table[bottom * w1 + left] + table[top * w1 + left];
+    }
+}
@@ -0,0 +1,189 @@
+package com.telpo.thermometry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <code>ThermoLatencyHistogram</code> 耗时直方图
+ * <p>
+ * 对数线性分桶（与 HdrHistogram 相同的方式）：每个 2 的幂区间均分为 {@value #SUB_BUCKET_COUNT} 个桶，
+ * 任何耗时的相对误差都不超过 1/{@value #SUB_BUCKET_COUNT}，记录范围为 0 到约 68 秒，超出范围的记录在最后一个桶。
+ * <p>
+ * 桶数固定，记录只是一次原子加法，不分配对象也不加锁，可以在测温设备线程的每一帧调用。
+ * 可以在任意线程调用 {@link #snapshot()} 读取，快照和正在进行的记录之间没有严格的一致性，用于监控足够。
+ *
+ * @author  gfm
+ * @see     ThermoMetrics
+ * @since   2.1
+ */
+public class ThermoLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+
+    /** 桶数量，线性部分加上每个 2 的幂区间 */
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /** 可以区分的最大耗时，单位为纳秒 */
+    public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，单位为纳秒，负数按 0 记录，超过 {@link #MAX_VALUE} 按 {@link #MAX_VALUE} 记录
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        } else if (nanos > MAX_VALUE) {
+            nanos = MAX_VALUE;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        sum.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get())) {
+            if (max.compareAndSet(current, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 清除所有记录
+     * <p>
+     * 与记录同时进行时，同时记录的值可能部分保留
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** 返回当前记录的快照 */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.get(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        if (value > MAX_VALUE) {
+            return BUCKET_COUNT - 1;
+        }
+        // 最高位决定区间，其后 SUB_BUCKET_BITS 位决定区间内的桶
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + sub) << shift;
+    }
+
+    static long bucketWidth(int index) {
+        return index < SUB_BUCKET_COUNT ? 1 : 1L << ((index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 直方图快照，创建后不再改变
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /** Returns the number of recorded values. */
+        public long getCount() {
+            return count;
+        }
+
+        /** Returns the mean value in nanoseconds, NaN if nothing has been recorded. */
+        public double getMean() {
+            return count > 0 ? (double) sum / count : Double.NaN;
+        }
+
+        /** Returns the maximum value in nanoseconds, 0 if nothing has been recorded. */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 返回百分位耗时，取所在桶的中间值
+         *
+         * @param percentile 0 到 100 之间，例如 99 表示 P99
+         * @return 耗时，单位为纳秒，没有记录时返回 0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(bucketLowerBound(i) + (bucketWidth(i) >> 1), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * 返回本快照与之前快照之间新增的记录，用于按时间间隔导出
+         * <p>
+         * 区间内的最大值无法从两个快照得到，返回本快照的最大值
+         *
+         * @param previous 同一个直方图较早的快照
+         */
+        public Snapshot minus(Snapshot previous) {
+            long[] delta = new long[counts.length];
+            long deltaCount = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                delta[i] = Math.max(counts[i] - previous.counts[i], 0);
+                deltaCount += delta[i];
+            }
+            return new Snapshot(delta, deltaCount, sum - previous.sum, max);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", count,
+                    getMean() / TimeUnit.MILLISECONDS.toNanos(1),
+                    toMillis(getValueAtPercentile(50)),
+                    toMillis(getValueAtPercentile(99)),
+                    toMillis(max));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -47,6 +47,9 @@ public class ThermoMeasureResult {
     /** 最近一帧数据 */
     private float[][] latestFrame;
 
+    /** 置信度，0 到 1 之间，NaN 表示算法没有提供 */
+    private float confidence = Float.NaN;
+
     /**
      * Returns the type for this result.
      *
@@ -62,23 +65,40 @@ public class ThermoMeasureResult {
         return temperature;
     }
 
+    /**
+     * Returns the confidence for this result, between 0 and 1, or NaN if not provided.
+     *
+     * @see ThermoAverageEstimator
+     * @since 2.1
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
     /** Returns the latest frame data for this result. */
     public float[][] getLatestFrame() {
         return latestFrame;
     }
 
     /**
-     * Set the type of this result.
+     * Set the type of this result, and reset the confidence to NaN.
      *
      * @param type One of {@link #UNKNOWN}, {@link #AVERAGE}, or {@link #SNAPSHOT}.
      */
     public void setType(@Type int type) {
         this.type = type;
+        this.confidence = Float.NaN;
     }
 
-    /** Set the temperature value of this result. */
+    /** Set the temperature value of this result, and reset the confidence to NaN. */
     public void setTemperature(float temperature) {
         this.temperature = temperature;
+        this.confidence = Float.NaN;
+    }
+
+    /** Set the confidence of this result, call after the type and temperature value are set. */
+    public void setConfidence(float confidence) {
+        this.confidence = confidence;
     }
 
     /** Set the latest frame data of this result. */
@@ -86,9 +106,21 @@ public class ThermoMeasureResult {
         this.latestFrame = latestFrame;
     }
 
-    /** Set the type and temperature value of this result. */
+    /**
+     * Set the type and temperature value of this result, and reset the confidence to NaN.
+     * <p>
+     * 测温结果对象被重复使用时，不会保留上一次结果的置信度
+     */
     public void set(@Type int type, float temperature) {
         this.type = type;
         this.temperature = temperature;
+        this.confidence = Float.NaN;
+    }
+
+    /** Set the type, temperature value and confidence of this result. */
+    public void set(@Type int type, float temperature, float confidence) {
+        this.type = type;
+        this.temperature = temperature;
+        this.confidence = confidence;
     }
 }
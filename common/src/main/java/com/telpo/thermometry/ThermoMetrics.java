@@ -0,0 +1,342 @@
+package com.telpo.thermometry;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>ThermoMetrics</code> 处理流程性能统计
+ * <p>
+ * 按阶段记录数据帧从测温设备输出到温度显示在界面上各段的耗时，并统计数据帧数、丢弃帧数和无法测温的结果数，
+ * 用于导出到设备监控、找出运行慢的设备。统计是可选的，不创建 <code>ThermoMetrics</code> 时没有任何开销。
+ * <pre>
+ * ThermoMetrics metrics = new ThermoMetrics();
+ * ThermoAlgorithm algorithm = metrics.instrument(ThermoFactory.createDefaultAlgorithm());
+ * renderer.setMetrics(metrics);
+ * thermometer.getFrames(pool, metrics.instrumentFrames(frame -&gt; {
+ *     algorithm.measureTemperature(frame, result);
+ *     Bitmap image = renderer.render(frame);
+ *     long start = ThermoMetrics.now();
+ *     runOnUiThread(() -&gt; {
+ *         metrics.recordSince(ThermoMetrics.UI, start);
+ *         imageView.setImageBitmap(image);
+ *     });
+ *     return false;
+ * }));
+ * </pre>
+ * 记录不分配对象也不加锁，可以在任意线程调用；{@link #snapshot()} 可以在其它线程定时调用。
+ *
+ * @author  gfm
+ * @see     ThermoLatencyHistogram
+ * @since   2.1
+ */
+public class ThermoMetrics {
+    @IntDef({ACQUISITION, DISPATCH, MEASURE, RENDER, UI})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Stage {}
+
+    /** 采集：从数据帧的采集时间到交给监听接口，包括帧缓冲池和队列的等待 */
+    public static final int ACQUISITION = 0;
+
+    /** 分发：监听接口处理一帧的总耗时 */
+    public static final int DISPATCH = 1;
+
+    /** 测温：{@link ThermoAlgorithm#measureTemperature} 的耗时 */
+    public static final int MEASURE = 2;
+
+    /** 绘制：{@link ThermoImageRenderer} 绘制一帧热成像的耗时 */
+    public static final int RENDER = 3;
+
+    /** 界面：从提交到主线程到主线程开始处理的耗时 */
+    public static final int UI = 4;
+
+    static final int STAGE_COUNT = 5;
+
+    private static final String[] STAGE_NAMES = {"acquisition", "dispatch", "measure", "render", "ui"};
+
+    private final ThermoLatencyHistogram[] histograms = new ThermoLatencyHistogram[STAGE_COUNT];
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong resultCount = new AtomicLong();
+    private final AtomicLong unknownCount = new AtomicLong();
+
+    public ThermoMetrics() {
+        for (int i = 0; i < STAGE_COUNT; ++i) {
+            histograms[i] = new ThermoLatencyHistogram();
+        }
+    }
+
+    /**
+     * 返回当前时间，与 {@link ThermoFrame#getTimestamp()} 使用相同的时钟
+     *
+     * @return {@link SystemClock#elapsedRealtimeNanos()}
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * 返回阶段的名称，用于导出
+     *
+     * @param stage One of {@link #ACQUISITION}, {@link #DISPATCH}, {@link #MEASURE}, {@link #RENDER}, or {@link #UI}.
+     */
+    public static String getStageName(@Stage int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param stage 阶段
+     * @param nanos 耗时，单位为纳秒
+     */
+    public void recordLatency(@Stage int stage, long nanos) {
+        histograms[stage].record(nanos);
+    }
+
+    /**
+     * 记录一个阶段从 <code>startNanos</code> 到现在的耗时
+     *
+     * @param stage 阶段
+     * @param startNanos 开始时间，参见 {@link #now()}
+     */
+    public void recordSince(@Stage int stage, long startNanos) {
+        histograms[stage].record(now() - startNanos);
+    }
+
+    /** 记录收到一帧数据，使用 {@link #instrumentFrames} 或 {@link #instrumentTemperatures} 包装的监听接口会自动记录 */
+    public void recordFrame() {
+        frameCount.incrementAndGet();
+    }
+
+    /**
+     * 记录丢弃的数据帧，例如 {@link ThermoFramePool#getDroppedCount()} 的增量
+     *
+     * @param count 丢弃的帧数
+     */
+    public void recordDropped(long count) {
+        droppedCount.addAndGet(count);
+    }
+
+    /**
+     * 记录一次测温结果，使用 {@link #instrument} 包装的测温算法会自动记录
+     *
+     * @param result 测温结果
+     */
+    public void recordResult(ThermoMeasureResult result) {
+        resultCount.incrementAndGet();
+        if (result.getType() == ThermoMeasureResult.UNKNOWN) {
+            unknownCount.incrementAndGet();
+        }
+    }
+
+    /** Returns the histogram of the given stage. */
+    public ThermoLatencyHistogram getHistogram(@Stage int stage) {
+        return histograms[stage];
+    }
+
+    /** 返回当前统计的快照，可以在任意线程调用 */
+    public Snapshot snapshot() {
+        ThermoLatencyHistogram.Snapshot[] stages = new ThermoLatencyHistogram.Snapshot[STAGE_COUNT];
+        for (int i = 0; i < STAGE_COUNT; ++i) {
+            stages[i] = histograms[i].snapshot();
+        }
+        return new Snapshot(stages, frameCount.get(), droppedCount.get(), resultCount.get(), unknownCount.get());
+    }
+
+    /** 清除所有统计 */
+    public void reset() {
+        for (ThermoLatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        frameCount.set(0);
+        droppedCount.set(0);
+        resultCount.set(0);
+        unknownCount.set(0);
+    }
+
+    /**
+     * 包装监听接口，记录数据帧数和 {@link #DISPATCH} 耗时
+     *
+     * @param listener 被包装的监听接口
+     */
+    public TemperaturesListener instrumentTemperatures(final TemperaturesListener listener) {
+        return new TemperaturesListener() {
+            @Override
+            public boolean onTemperaturesReceived(float[][] data) {
+                long start = now();
+                frameCount.incrementAndGet();
+                try {
+                    return listener.onTemperaturesReceived(data);
+                } finally {
+                    recordSince(DISPATCH, start);
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装监听接口，记录数据帧数、{@link #ACQUISITION} 和 {@link #DISPATCH} 耗时
+     *
+     * @param listener 被包装的监听接口
+     */
+    public ThermoFrameListener instrumentFrames(final ThermoFrameListener listener) {
+        return new ThermoFrameListener() {
+            @Override
+            public boolean onFrameReceived(ThermoFrame frame) {
+                long start = now();
+                frameCount.incrementAndGet();
+                if (frame.getTimestamp() > 0) {
+                    recordLatency(ACQUISITION, start - frame.getTimestamp());
+                }
+                try {
+                    return listener.onFrameReceived(frame);
+                } finally {
+                    recordSince(DISPATCH, start);
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装测温算法，记录 {@link #MEASURE} 耗时和测温结果
+     *
+     * @param algorithm 被包装的测温算法
+     */
+    public ThermoAlgorithm instrument(ThermoAlgorithm algorithm) {
+        return new InstrumentedAlgorithm(algorithm);
+    }
+
+    private class InstrumentedAlgorithm implements ThermoAlgorithm {
+        private final ThermoAlgorithm algorithm;
+
+        InstrumentedAlgorithm(ThermoAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public void measureTemperature(float[][] data, ThermoMeasureResult result) {
+            long start = now();
+            algorithm.measureTemperature(data, result);
+            recordSince(MEASURE, start);
+            recordResult(result);
+        }
+
+        @Override
+        public void measureTemperature(float[][] data, Rect rect, ThermoMeasureResult result) {
+            long start = now();
+            algorithm.measureTemperature(data, rect, result);
+            recordSince(MEASURE, start);
+            recordResult(result);
+        }
+
+        @Override
+        public void measureTemperature(ThermoFrame frame, ThermoMeasureResult result) {
+            long start = now();
+            algorithm.measureTemperature(frame, result);
+            recordSince(MEASURE, start);
+            recordResult(result);
+        }
+
+        @Override
+        public void measureTemperature(ThermoFrame frame, Rect rect, ThermoMeasureResult result) {
+            long start = now();
+            algorithm.measureTemperature(frame, rect, result);
+            recordSince(MEASURE, start);
+            recordResult(result);
+        }
+
+        @Override
+        public void measureRegions(ThermoFrame frame, Rect[] rects, ThermoIntegralImage integral,
+                                   ThermoRegionStatistics[] results) {
+            long start = now();
+            algorithm.measureRegions(frame, rects, integral, results);
+            recordSince(MEASURE, start);
+        }
+
+        @Override
+        public void measureRegions(float[][] data, Rect[] rects, ThermoIntegralImage integral,
+                                   ThermoRegionStatistics[] results) {
+            long start = now();
+            algorithm.measureRegions(data, rects, integral, results);
+            recordSince(MEASURE, start);
+        }
+    }
+
+    /**
+     * 统计快照，创建后不再改变
+     */
+    public static class Snapshot {
+        private final ThermoLatencyHistogram.Snapshot[] stages;
+        private final long frameCount;
+        private final long droppedCount;
+        private final long resultCount;
+        private final long unknownCount;
+
+        Snapshot(ThermoLatencyHistogram.Snapshot[] stages, long frameCount, long droppedCount,
+                 long resultCount, long unknownCount) {
+            this.stages = stages;
+            this.frameCount = frameCount;
+            this.droppedCount = droppedCount;
+            this.resultCount = resultCount;
+            this.unknownCount = unknownCount;
+        }
+
+        /** Returns the latency histogram snapshot of the given stage. */
+        public ThermoLatencyHistogram.Snapshot getStage(@Stage int stage) {
+            return stages[stage];
+        }
+
+        /** Returns the number of frames received. */
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        /** Returns the number of frames dropped. */
+        public long getDroppedCount() {
+            return droppedCount;
+        }
+
+        /** Returns the number of measure results. */
+        public long getResultCount() {
+            return resultCount;
+        }
+
+        /** Returns the number of {@link ThermoMeasureResult#UNKNOWN} results. */
+        public long getUnknownCount() {
+            return unknownCount;
+        }
+
+        /**
+         * 返回本快照与之前快照之间的增量，用于按时间间隔导出
+         *
+         * @param previous 同一个 {@link ThermoMetrics} 较早的快照
+         */
+        public Snapshot minus(Snapshot previous) {
+            ThermoLatencyHistogram.Snapshot[] delta = new ThermoLatencyHistogram.Snapshot[STAGE_COUNT];
+            for (int i = 0; i < STAGE_COUNT; ++i) {
+                delta[i] = stages[i].minus(previous.stages[i]);
+            }
+            return new Snapshot(delta, frameCount - previous.frameCount, droppedCount - previous.droppedCount,
+                    resultCount - previous.resultCount, unknownCount - previous.unknownCount);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("frames=").append(frameCount)
+                    .append(" dropped=").append(droppedCount)
+                    .append(" results=").append(resultCount)
+                    .append(" unknown=").append(unknownCount);
+            for (int i = 0; i < STAGE_COUNT; ++i) {
+                sb.append('\n').append(STAGE_NAMES[i]).append(": ").append(stages[i]);
+            }
+            return sb.toString();
+        }
+    }
+}
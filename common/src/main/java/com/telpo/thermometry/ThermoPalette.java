@@ -0,0 +1,122 @@
+package com.telpo.thermometry;
+
+import android.graphics.Bitmap;
+
+/**
+ * <code>ThermoPalette</code> 热成像调色板颜色表
+ * <p>
+ * 由调色板位图一次性解析成 ARGB 颜色数组，按温度量化值（0.1 摄氏度）索引，
+ * 绘制热成像时每个温度值选择颜色只需一次数组读取，不再产生临时对象。
+ *
+ * @author  gfm
+ * @see     ThermoFactory#createPalette
+ * @see     ThermoFactory#createThermoPalette
+ * @since   2.1
+ */
+public class ThermoPalette {
+    /** 默认调色板起始温度 */
+    public static final float DEFAULT_START_TEMPERATURE = 5.0F;
+
+    /** 默认调色板结束温度 */
+    public static final float DEFAULT_END_TEMPERATURE = 41.0F;
+
+    /** 默认温度补偿值 */
+    public static final float DEFAULT_COMPENSATE = 6.0F;
+
+    /** 颜色表，下标为量化温度值减去起始量化温度值 */
+    private final int[] colors;
+
+    /** 起始量化温度值 */
+    private final int startLevel;
+
+    /** 温度补偿值 */
+    private final float compensate;
+
+    /**
+     * 使用默认温度范围和补偿值创建调色板颜色表
+     *
+     * @param palette 调色板位图
+     *
+     * @see ThermoFactory#createPalette
+     */
+    public ThermoPalette(Bitmap palette) {
+        this(palette, DEFAULT_START_TEMPERATURE, DEFAULT_END_TEMPERATURE, DEFAULT_COMPENSATE);
+    }
+
+    /**
+     * 创建调色板颜色表
+     *
+     * @param palette 调色板位图，横向或纵向排列颜色，长度不能小于 (endTem - startTem) * 10
+     * @param startTem 调色板起始温度
+     * @param endTem 调色板结束温度
+     * @param compensate 选择颜色前对温度值的补偿
+     */
+    public ThermoPalette(Bitmap palette, float startTem, float endTem, float compensate) {
+        if (palette == null) {
+            throw new IllegalArgumentException("palette is null");
+        }
+        int start = (int) (startTem * 10.0F);
+        int end = (int) (endTem * 10.0F);
+        if (end <= start) {
+            throw new IllegalArgumentException("endTem must be greater than startTem");
+        }
+
+        int width = palette.getWidth();
+        int height = palette.getHeight();
+        int length = end - start;
+        if (Math.max(width, height) < length) {
+            throw new IllegalArgumentException("palette too small, required " + length + " colors");
+        }
+
+        this.colors = new int[length];
+        this.startLevel = start;
+        this.compensate = compensate;
+        for (int i = 0; i < length; ++i) {
+            int pixelColor = width < height ? palette.getPixel(0, i) : palette.getPixel(i, 0);
+            // 调色板只取 RGB，颜色总是不透明
+            colors[i] = 0xFF000000 | (pixelColor & 0x00FFFFFF);
+        }
+    }
+
+    /**
+     * 根据温度值选择颜色
+     *
+     * @param temperature 温度值
+     * @return ARGB 颜色值
+     */
+    public int getColor(float temperature) {
+        temperature += compensate;
+        return getColorByLevel((int) (temperature * 10.0F));
+    }
+
+    /**
+     * 根据量化温度值选择颜色
+     *
+     * @param level 已补偿的量化温度值，单位为 0.1 摄氏度，超出调色板范围时取边界颜色
+     * @return ARGB 颜色值
+     */
+    public int getColorByLevel(int level) {
+        int index = level - startLevel;
+        if (index <= 0) {
+            return colors[0];
+        } else if (index >= colors.length) {
+            return colors[colors.length - 1];
+        }
+        return colors[index];
+    }
+
+    /** Returns the quantized temperature of the first color. */
+    int getStartLevel() {
+        return startLevel;
+    }
+
+    /** Returns the temperature compensation of this palette. */
+    public float getCompensate() {
+        return compensate;
+    }
+
+    /** Returns the number of colors in this palette. */
+    public int size() {
+        return colors.length;
+    }
+}
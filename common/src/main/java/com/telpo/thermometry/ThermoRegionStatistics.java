@@ -0,0 +1,49 @@
+package com.telpo.thermometry;
+
+/**
+ * <code>ThermoRegionStatistics</code>
+ * <p>
+ * 温度阵列矩形区域的统计结果，由 {@link ThermoIntegralImage#getStatistics} 和
+ * {@link ThermoAlgorithm#measureRegions} 输出，可以重复使用。
+ *
+ * @author  gfm
+ * @see     ThermoIntegralImage
+ * @since   2.1
+ */
+public class ThermoRegionStatistics {
+    /** 区域内的点数 */
+    private int count;
+
+    /** 平均温度 */
+    private float mean = Float.NaN;
+
+    /** 温度值的方差 */
+    private float variance = Float.NaN;
+
+    /** Returns the number of cells in the region, 0 if the region is empty. */
+    public int getCount() {
+        return count;
+    }
+
+    /** Returns the mean temperature of the region, NaN if the region is empty. */
+    public float getMean() {
+        return mean;
+    }
+
+    /** Returns the variance of temperatures in the region, NaN if the region is empty. */
+    public float getVariance() {
+        return variance;
+    }
+
+    /** Returns the standard deviation of temperatures in the region, NaN if the region is empty. */
+    public float getStandardDeviation() {
+        return (float) Math.sqrt(variance);
+    }
+
+    /** Set the count, mean and variance of this result. */
+    public void set(int count, float mean, float variance) {
+        this.count = count;
+        this.mean = mean;
+        this.variance = variance;
+    }
+}
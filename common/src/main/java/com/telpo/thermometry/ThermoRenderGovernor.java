@@ -0,0 +1,359 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>ThermoRenderGovernor</code> 热成像绘制节流
+ * <p>
+ * 测温算法按测温设备的帧率处理每一帧，热成像只需要按显示需要绘制。测温设备线程调用 {@link #submit} 提交数据帧，
+ * 只复制数据并立即返回；绘制在另一个线程按目标帧率进行，两次绘制之间提交的数据帧合并为最新的一帧，没有人观察
+ * （{@link #setObserved} 为 false）时完全停止绘制，提交也不再复制数据。
+ * <p>
+ * 两种绘制方式：
+ * <ul>
+ *     <li>{@link #ThermoRenderGovernor(RenderListener, float)}：在内部绘制线程按目标帧率绘制，需要调用 {@link #start()}</li>
+ *     <li>{@link #ThermoRenderGovernor(RenderListener, Choreographer, float)}：只在有新数据帧时请求下一次 vsync，
+ *     在 {@link Choreographer} 所在的线程（通常是主线程）绘制，可以直接更新 View</li>
+ * </ul>
+ * 数据帧通过 {@link AtomicReference} 交换，一共使用 3 个数据帧，提交和绘制都不加锁、不分配新的对象。
+ * <pre>
+ * ThermoRenderGovernor governor = new ThermoRenderGovernor(
+ *         frame -&gt; imageView.setImageBitmap(renderer.render(frame)), Choreographer.getInstance(), 10);
+ * governor.start();
+ * thermometer.getTemperatures(data -&gt; {
+ *     algorithm.measureTemperature(data, result);
+ *     governor.submit(data);
+ *     return false;
+ * });
+ * </pre>
+ * 只能有一个线程调用 {@link #submit}。
+ *
+ * @author  gfm
+ * @see     ThermoImageRenderer
+ * @since   2.1
+ */
+public class ThermoRenderGovernor implements TemperaturesListener, ThermoFrameListener {
+    /**
+     * 绘制监听接口
+     */
+    public interface RenderListener {
+        /**
+         * 绘制数据帧
+         *
+         * @param frame 最新提交的数据帧，帧序号为提交的顺序，只在方法返回前有效
+         */
+        void onRender(ThermoFrame frame);
+    }
+
+    private final RenderListener listener;
+    private final Choreographer choreographer;
+    private final long intervalNanos;
+
+    /** 等待绘制的最新数据帧 */
+    private final AtomicReference<ThermoFrame> pending = new AtomicReference<>();
+
+    /** 提交线程持有的空闲数据帧 */
+    private ThermoFrame producerFrame;
+    private volatile long sequence;
+
+    /** 绘制线程持有的数据帧，即上一次绘制的数据帧 */
+    private ThermoFrame renderFrame;
+    private long renderedSequence;
+    private long lastRenderNanos;
+
+    /** 恢复观察之前提交的数据帧不再绘制 */
+    private volatile long resumeSequence;
+
+    private volatile boolean observed = true;
+    private volatile boolean started;
+    private volatile Thread renderThread;
+
+    /** 最近一次启动的绘制线程，重新开始前等待它退出，绘制使用的数据帧只能有一个线程访问 */
+    private Thread lastRenderThread;
+    private final AtomicBoolean callbackPending = new AtomicBoolean();
+
+    private volatile long submittedCount;
+    private volatile long skippedCount;
+    private volatile long renderedCount;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            callbackPending.set(false);
+            if (!started || !observed) {
+                return;
+            }
+            if (lastRenderNanos != 0 && frameTimeNanos - lastRenderNanos < intervalNanos) {
+                // 还没到目标帧率的下一帧，等下一次 vsync
+                requestRender();
+                return;
+            }
+            if (renderLatest()) {
+                lastRenderNanos = frameTimeNanos;
+            }
+        }
+    };
+
+    /**
+     * 在内部绘制线程按目标帧率绘制
+     *
+     * @param listener 在绘制线程被调用
+     * @param targetFps 目标帧率，为 0 时不限制，有新数据帧就绘制
+     */
+    public ThermoRenderGovernor(RenderListener listener, float targetFps) {
+        this(listener, null, targetFps);
+    }
+
+    /**
+     * 在 vsync 时绘制
+     *
+     * @param listener 在 <code>choreographer</code> 所在的线程被调用
+     * @param choreographer 例如在主线程调用 {@link Choreographer#getInstance()} 得到的对象，为 null 时使用内部绘制线程
+     * @param maxFps 最大帧率，为 0 时不限制，每次 vsync 都可以绘制
+     */
+    public ThermoRenderGovernor(RenderListener listener, Choreographer choreographer, float maxFps) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+        if (maxFps < 0 || maxFps != maxFps) {
+            throw new IllegalArgumentException("invalid fps " + maxFps);
+        }
+        this.listener = listener;
+        this.choreographer = choreographer;
+        this.intervalNanos = maxFps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxFps) : 0;
+    }
+
+    /**
+     * 开始绘制，使用内部绘制线程时启动绘制线程
+     * <p>
+     * {@link #stop()} 之后马上重新开始时，先等待上一个绘制线程完成正在进行的绘制并退出；
+     * 不要在绘制监听接口中重新开始，此时无法等待当前的绘制线程。与 {@link #setObserved} 相同，
+     * 开始之前提交的数据帧不会被绘制，不会显示停止前的旧画面
+     */
+    public void start() {
+        Thread previous;
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("already started");
+            }
+            previous = lastRenderThread;
+        }
+        // 不持有锁等待，绘制监听接口可能调用 stop()
+        if (previous != null && previous != Thread.currentThread()) {
+            joinUninterruptibly(previous);
+        }
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("already started");
+            }
+            // 停止前提交、还没有绘制的数据帧不再绘制，从下一次提交的数据帧开始
+            resumeSequence = sequence;
+            started = true;
+            if (choreographer == null) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        renderLoop();
+                    }
+                }, ThermoRenderGovernor.class.getSimpleName());
+                thread.setDaemon(true);
+                renderThread = thread;
+                lastRenderThread = thread;
+                thread.start();
+            } else {
+                requestRender();
+            }
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 停止绘制，可以在任意线程调用，正在进行的绘制会继续完成
+     */
+    public synchronized void stop() {
+        started = false;
+        Thread thread = renderThread;
+        renderThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        if (choreographer != null && callbackPending.compareAndSet(true, false)) {
+            choreographer.removeFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * 设置是否有人观察绘制结果，例如界面进入后台时设为 false
+     * <p>
+     * 不观察时停止绘制，提交的数据帧直接丢弃；恢复观察后从下一次提交的数据帧开始绘制，不会显示之前的旧画面
+     *
+     * @param observed 默认为 true
+     */
+    public void setObserved(boolean observed) {
+        if (observed && !this.observed) {
+            resumeSequence = sequence;
+        }
+        this.observed = observed;
+    }
+
+    /** Returns true if rendering results are being observed. */
+    public boolean isObserved() {
+        return observed;
+    }
+
+    @Override
+    public boolean onTemperaturesReceived(float[][] data) {
+        submit(data);
+        return false;
+    }
+
+    @Override
+    public boolean onFrameReceived(ThermoFrame frame) {
+        submit(frame);
+        return false;
+    }
+
+    /**
+     * 提交数据帧，只复制数据并通知绘制，不等待绘制
+     *
+     * @param data 温度阵列数据帧，返回后可以重复使用
+     */
+    public void submit(float[][] data) {
+        ThermoFrame frame = obtainFrame(data[0].length, data.length);
+        if (frame != null) {
+            frame.copyFrom(data);
+            frame.setTimestamp(SystemClock.elapsedRealtimeNanos());
+            publish(frame);
+        }
+    }
+
+    /**
+     * 提交数据帧，只复制数据并通知绘制，不等待绘制
+     *
+     * @param frame 温度阵列数据帧，保留采集时间，返回后可以重复使用
+     */
+    public void submit(ThermoFrame frame) {
+        ThermoFrame copy = obtainFrame(frame.getWidth(), frame.getHeight());
+        if (copy != null) {
+            copy.copyFrom(frame);
+            publish(copy);
+        }
+    }
+
+    // 不需要绘制时返回 null
+    private ThermoFrame obtainFrame(int width, int height) {
+        submittedCount++;
+        if (!started || !observed) {
+            skippedCount++;
+            return null;
+        }
+        ThermoFrame frame = producerFrame;
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            frame = new ThermoFrame(width, height);
+            producerFrame = frame;
+        }
+        return frame;
+    }
+
+    private void publish(ThermoFrame frame) {
+        long next = sequence + 1;
+        frame.setSequence(next);
+        // 换出的数据帧如果还没有绘制就被合并掉了
+        producerFrame = pending.getAndSet(frame);
+        sequence = next;
+        requestRender();
+    }
+
+    private void requestRender() {
+        if (choreographer != null) {
+            if (callbackPending.compareAndSet(false, true)) {
+                choreographer.postFrameCallback(frameCallback);
+            }
+        } else {
+            Thread thread = renderThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    // 绘制最新的数据帧，没有新数据帧时返回 false
+    private boolean renderLatest() {
+        ThermoFrame latest = pending.get();
+        long minSequence = Math.max(renderedSequence, resumeSequence);
+        if (latest == null || latest.getSequence() <= minSequence) {
+            return false;
+        }
+        latest = pending.getAndSet(renderFrame);
+        renderFrame = latest;
+        if (latest == null || latest.getSequence() <= minSequence) {
+            return false;
+        }
+        renderedSequence = latest.getSequence();
+        listener.onRender(latest);
+        renderedCount++;
+        return true;
+    }
+
+    private void renderLoop() {
+        // 停止后旧的绘制线程在下一次检查时退出，重新开始的 start() 会等待它退出后才启动新的绘制线程
+        while (renderThread == Thread.currentThread()) {
+            if (!observed || !hasPending()) {
+                LockSupport.park(this);
+                continue;
+            }
+            long now = System.nanoTime();
+            long wait = lastRenderNanos + intervalNanos - now;
+            if (lastRenderNanos != 0 && wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            try {
+                if (renderLatest()) {
+                    lastRenderNanos = now;
+                }
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        ThermoFrame latest = pending.get();
+        return latest != null && latest.getSequence() > Math.max(renderedSequence, resumeSequence);
+    }
+
+    /** Returns the number of frames submitted. */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /** Returns the number of frames dropped without copying because nobody was observing. */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /** Returns the number of frames rendered, the rest were coalesced into newer frames. */
+    public long getRenderedCount() {
+        return renderedCount;
+    }
+}
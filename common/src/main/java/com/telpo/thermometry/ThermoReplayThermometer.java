@@ -0,0 +1,247 @@
+package com.telpo.thermometry;
+
+import androidx.annotation.IntDef;
+
+import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>ThermoReplayThermometer</code> 回放测温设备
+ * <p>
+ * 把 {@link ThermoFrameRecorder} 录制的文件按 {@link Thermometer} 接口回放，没有测温设备时也可以运行完整的处理流程，
+ * 用于调试和测量测温算法、热成像绘制的吞吐量。调用限制与真实设备相同，<code>getTemperatures</code>
+ * 返回之前重复调用会抛出 {@link IllegalStateException}，可以在其它线程调用 {@link #stop()}。
+ * <p>
+ * 输出给 {@link TemperaturesListener} 的数组会被重复使用。
+ *
+ * @author  gfm
+ * @see     ThermoFrameRecorder
+ * @see     ThermoFrameReader
+ * @since   2.1
+ */
+public class ThermoReplayThermometer implements Thermometer {
+    @IntDef({REALTIME, FIXED_RATE, AS_FAST_AS_POSSIBLE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Pacing {}
+
+    /**
+     * 按录制时的采集时间间隔输出。
+     * <p>Use with {@link Factory}
+     */
+    public static final int REALTIME = 0;
+
+    /**
+     * 按固定帧率输出。
+     * <p>Use with {@link Factory}
+     */
+    public static final int FIXED_RATE = 1;
+
+    /**
+     * 不等待，尽快输出，用于测量吞吐量。
+     * <p>Use with {@link Factory}
+     */
+    public static final int AS_FAST_AS_POSSIBLE = 2;
+
+    /** 回放版本号 */
+    public static final String VERSION = "replay";
+
+    /**
+     * 回放测温设备工厂
+     */
+    public static class Factory implements Thermometer.Factory {
+        private final File file;
+        private final int pacing;
+        private final float frameRate;
+        private final boolean loop;
+
+        /**
+         * 按录制时的采集时间间隔回放一次
+         *
+         * @param file 录制文件
+         */
+        public Factory(File file) {
+            this(file, REALTIME, 0, false);
+        }
+
+        /**
+         * Factory 构造方法
+         *
+         * @param file 录制文件
+         * @param pacing 输出节奏
+         * @param frameRate {@link #FIXED_RATE} 时的帧率，其它节奏忽略该值
+         * @param loop 回放结束后是否从头开始
+         */
+        public Factory(File file, @Pacing int pacing, float frameRate, boolean loop) {
+            if (file == null) {
+                throw new IllegalArgumentException("file is null");
+            }
+            if (pacing == FIXED_RATE && !(frameRate > 0)) {
+                throw new IllegalArgumentException("frameRate must be positive");
+            }
+            this.file = file;
+            this.pacing = pacing;
+            this.frameRate = frameRate;
+            this.loop = loop;
+        }
+
+        @Override
+        public Thermometer createThermometer() {
+            return new ThermoReplayThermometer(file, pacing, frameRate, loop);
+        }
+    }
+
+    private final File file;
+    private final int pacing;
+    private final long frameIntervalNanos;
+    private final boolean loop;
+    // running、used、stopped 的改变都持有 stateLock，stop() 不会与一次运行的开始和结束交错
+    private final Object stateLock = new Object();
+    private boolean running;
+    private boolean used;
+    private volatile boolean stopped;
+    private volatile Thread replayThread;
+    private volatile float ambientTemperature = Float.NaN;
+
+    /**
+     * ThermoReplayThermometer 构造方法
+     *
+     * @see Factory#Factory(File, int, float, boolean)
+     */
+    public ThermoReplayThermometer(File file, @Pacing int pacing, float frameRate, boolean loop) {
+        this.file = file;
+        this.pacing = pacing;
+        this.frameIntervalNanos = pacing == FIXED_RATE ? (long) (TimeUnit.SECONDS.toNanos(1) / frameRate) : 0;
+        this.loop = loop;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try (ThermoFrameReader reader = new ThermoFrameReader(file)) {
+            return reader.getFrameCount() > 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        return VERSION;
+    }
+
+    /**
+     * 返回最近输出的数据帧录制时的环境温度，还没有开始回放时读取第一帧的环境温度
+     */
+    @Override
+    public float getAmbientTemperature() throws Exception {
+        float ambient = ambientTemperature;
+        if (ambient == ambient) {
+            return ambient;
+        }
+        try (ThermoFrameReader reader = new ThermoFrameReader(file)) {
+            return reader.next() ? reader.getAmbientTemperature() : Float.NaN;
+        }
+    }
+
+    @Override
+    public void getTemperatures(TemperaturesListener listener) throws Exception {
+        synchronized (stateLock) {
+            if (running) {
+                throw new IllegalStateException("getTemperatures is already running");
+            }
+            // 不在这里清除 stopped，新对象第一次运行之前调用的 stop() 仍然有效，本次调用立即返回
+            running = true;
+            used = true;
+            replayThread = Thread.currentThread();
+        }
+        try (ThermoFrameReader reader = new ThermoFrameReader(file)) {
+            replay(reader, listener);
+        } finally {
+            synchronized (stateLock) {
+                replayThread = null;
+                stopped = false;
+                running = false;
+            }
+        }
+    }
+
+    private void replay(ThermoFrameReader reader, TemperaturesListener listener) {
+        float[][] data = null;
+        long startNanos = System.nanoTime();
+        long firstTimestamp = 0;
+        long frames = 0;
+        boolean first = true;
+        while (!stopped) {
+            if (!reader.next()) {
+                if (!loop || frames == 0) {
+                    return;
+                }
+                // 从头开始，时间基准重新计算
+                reader.rewind();
+                first = true;
+                continue;
+            }
+            if (data == null || data.length != reader.getHeight() || data[0].length != reader.getWidth()) {
+                data = new float[reader.getHeight()][reader.getWidth()];
+            }
+            reader.read(data);
+
+            if (first) {
+                startNanos = System.nanoTime();
+                firstTimestamp = reader.getTimestamp();
+                frames = 0;
+                first = false;
+            }
+            long delay;
+            if (pacing == REALTIME) {
+                delay = reader.getTimestamp() - firstTimestamp;
+            } else if (pacing == FIXED_RATE) {
+                delay = frames * frameIntervalNanos;
+            } else {
+                delay = 0;
+            }
+            waitUntil(startNanos + delay);
+            if (stopped) {
+                return;
+            }
+
+            ambientTemperature = reader.getAmbientTemperature();
+            frames++;
+            if (listener.onTemperaturesReceived(data)) {
+                return;
+            }
+        }
+    }
+
+    // 按绝对时间等待，误差不会逐帧积累
+    private void waitUntil(long deadline) {
+        long remaining;
+        while (!stopped && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    /**
+     * 停止正在运行的 {@link #getTemperatures}
+     * <p>
+     * 与测温设备相同，一次运行结束后空闲时调用没有作用。与测温设备不同的是，新创建、还没有运行过的回放设备会记住
+     * <code>stop()</code>，之后第一次 {@link #getTemperatures} 立即返回：取消订阅可能发生在创建测温设备之后、
+     * 调用 {@link #getTemperatures} 之前，这时的取消不应丢失，否则回放设备不会自己结束
+     */
+    @Override
+    public void stop() {
+        Thread thread;
+        synchronized (stateLock) {
+            if (!running && used) {
+                return;
+            }
+            stopped = true;
+            thread = replayThread;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
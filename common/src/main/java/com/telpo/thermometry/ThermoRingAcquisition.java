@@ -0,0 +1,146 @@
+package com.telpo.thermometry;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>ThermoRingAcquisition</code> 环形缓冲采集
+ * <p>
+ * 作为 {@link TemperaturesListener} 传给 {@link Thermometer#getTemperatures}，在测温设备线程只把数据帧复制到
+ * {@link ThermoFrameRing} 并唤醒处理线程，{@link ThermoFrameListener} 在处理线程被调用，处理时间不再限制测温设备的帧率。
+ * 处理跟不上时旧的数据帧被覆盖，参见 {@link ThermoFrameRing#getOverwrittenCount()}。
+ * <pre>
+ * ThermoRingAcquisition acquisition = new ThermoRingAcquisition(new ThermoFrameRing(32, 32, 4), listener);
+ * acquisition.start();
+ * try {
+ *     thermometer.getTemperatures(acquisition);
+ * } finally {
+ *     acquisition.stop();
+ * }
+ * </pre>
+ *
+ * @author  gfm
+ * @see     ThermoFrameRing
+ * @since   2.1
+ */
+public class ThermoRingAcquisition implements TemperaturesListener {
+    private final ThermoFrameRing ring;
+    private final ThermoFrameListener listener;
+    private volatile Thread worker;
+    private volatile boolean stopped;
+
+    /** 最近一次启动的处理线程，重新启动前等待它退出，环形缓冲只能有一个消费者 */
+    private Thread lastWorker;
+
+    /**
+     * ThermoRingAcquisition 构造方法
+     *
+     * @param ring 环形缓冲，数据帧大小必须和测温设备输出的温度阵列大小相同
+     * @param listener 在处理线程监听数据帧输出，返回 true 时停止采集；数据帧只在返回前有效
+     */
+    public ThermoRingAcquisition(ThermoFrameRing ring, ThermoFrameListener listener) {
+        if (ring == null || listener == null) {
+            throw new IllegalArgumentException("ring or listener is null");
+        }
+        this.ring = ring;
+        this.listener = listener;
+    }
+
+    /**
+     * 启动处理线程，应在 {@link Thermometer#getTemperatures} 之前调用
+     * <p>
+     * {@link #stop()} 之后马上重新启动时，先等待上一个处理线程处理完当前数据帧并退出
+     */
+    public void start() {
+        Thread previous;
+        synchronized (this) {
+            if (worker != null) {
+                throw new IllegalStateException("already started");
+            }
+            previous = lastWorker;
+        }
+        // 不持有锁等待，上一个处理线程的监听接口可能调用 stop()
+        if (previous != null && previous != Thread.currentThread()) {
+            joinUninterruptibly(previous);
+        }
+        synchronized (this) {
+            if (worker != null) {
+                throw new IllegalStateException("already started");
+            }
+            stopped = false;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, ThermoRingAcquisition.class.getSimpleName());
+            worker = thread;
+            lastWorker = thread;
+            thread.start();
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 停止处理线程，{@link #onTemperaturesReceived} 之后返回 true 使 {@link Thermometer#getTemperatures} 返回
+     * <p>
+     * 可以在任意线程调用，正在处理的数据帧会继续处理完成
+     */
+    public synchronized void stop() {
+        stopped = true;
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public boolean onTemperaturesReceived(float[][] data) {
+        if (stopped) {
+            return true;
+        }
+        ring.offer(data);
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return stopped;
+    }
+
+    private void work() {
+        // 每个处理线程只检查自己是否仍是当前的处理线程，重新启动不会让旧的处理线程继续运行
+        while (worker == Thread.currentThread()) {
+            ThermoFrame frame = ring.poll();
+            if (frame == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (listener.onFrameReceived(frame)) {
+                stop();
+            }
+        }
+    }
+
+    /** Returns the ring of this acquisition. */
+    public ThermoFrameRing getRing() {
+        return ring;
+    }
+
+    /** Returns true if this acquisition has been stopped. */
+    public boolean isStopped() {
+        return stopped;
+    }
+}
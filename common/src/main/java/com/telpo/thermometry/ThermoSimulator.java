@@ -0,0 +1,384 @@
+package com.telpo.thermometry;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>ThermoSimulator</code> 模拟测温设备
+ * <p>
+ * 按参数生成温度阵列数据帧：带梯度的环境温度、移动的高温目标（例如人脸）、高斯噪声、坏点和帧间隔抖动，
+ * 帧率和分辨率可以任意设置，用于对 {@link ThermoAlgorithm} 和热成像绘制做压力测试和长时间运行测试。
+ * <p>
+ * 工作缓冲在 <code>getTemperatures</code> 开始时准备，生成每帧数据不分配新的对象，噪声来自预先生成的高斯分布表，
+ * 生成速度远高于真实测温设备的帧率，不会成为测试的瓶颈。
+ * <p>
+ * 参数应在调用 {@link #getTemperatures} 之前设置。作为 {@link Thermometer.Factory} 时，
+ * {@link #createThermometer()} 返回参数相同的新模拟设备。
+ *
+ * @author  gfm
+ * @see     ThermoReplayThermometer
+ * @since   2.1
+ */
+public class ThermoSimulator implements Thermometer, Thermometer.Factory {
+    /** 模拟设备版本号 */
+    public static final String VERSION = "simulator";
+
+    /** 默认环境温度 */
+    public static final float DEFAULT_AMBIENT_TEMPERATURE = 25.0F;
+
+    /** 默认噪声标准差 */
+    public static final float DEFAULT_NOISE = 0.1F;
+
+    private static final int NOISE_TABLE_SIZE = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final float frameRate;
+
+    private float ambientTemperature = DEFAULT_AMBIENT_TEMPERATURE;
+    private float ambientGradient;
+    private float noise = DEFAULT_NOISE;
+    private float jitter;
+    private float deadValue;
+    private long seed = 0x5DEECE66DL;
+
+    // 高温目标，下标为目标编号
+    private int blobCount;
+    private float[] blobX = new float[0], blobY = new float[0];
+    private float[] blobVX = new float[0], blobVY = new float[0];
+    private float[] blobRadius = new float[0], blobTemperature = new float[0];
+
+    private int[] deadPixels = new int[0];
+
+    // 每次 getTemperatures 开始时准备的工作缓冲
+    private float[] field;
+    private float[] noiseTable;
+    private float[][] output;
+    private long random;
+
+    // running、used、stopped 的改变都持有 stateLock，stop() 不会与一次运行的开始和结束交错
+    private final Object stateLock = new Object();
+    private boolean running;
+    private boolean used;
+    private volatile boolean stopped;
+    private volatile Thread simulatorThread;
+
+    /**
+     * ThermoSimulator 构造方法
+     *
+     * @param width 温度阵列宽度（列数）
+     * @param height 温度阵列高度（行数）
+     * @param frameRate 帧率，为 0 时不等待，尽快输出
+     */
+    public ThermoSimulator(int width, int height, float frameRate) {
+        if (width <= 0 || height <= 0 || frameRate < 0) {
+            throw new IllegalArgumentException("invalid size " + width + "x" + height + " or frame rate " + frameRate);
+        }
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+    }
+
+    private ThermoSimulator(ThermoSimulator other) {
+        this(other.width, other.height, other.frameRate);
+        ambientTemperature = other.ambientTemperature;
+        ambientGradient = other.ambientGradient;
+        noise = other.noise;
+        jitter = other.jitter;
+        deadValue = other.deadValue;
+        seed = other.seed;
+        blobCount = other.blobCount;
+        blobX = other.blobX.clone();
+        blobY = other.blobY.clone();
+        blobVX = other.blobVX.clone();
+        blobVY = other.blobVY.clone();
+        blobRadius = other.blobRadius.clone();
+        blobTemperature = other.blobTemperature.clone();
+        deadPixels = other.deadPixels.clone();
+    }
+
+    /**
+     * 设置环境温度
+     *
+     * @param temperature 第一行的环境温度
+     * @param gradient 每行增加的温度，模拟上下温差
+     */
+    public void setAmbient(float temperature, float gradient) {
+        this.ambientTemperature = temperature;
+        this.ambientGradient = gradient;
+    }
+
+    /**
+     * 添加一个高温目标，目标在画面边缘反弹
+     *
+     * @param x 初始中心位置
+     * @param y 初始中心位置
+     * @param radius 半径，单位为点
+     * @param temperature 中心温度，例如皮肤温度
+     * @param vx 每帧移动的点数
+     * @param vy 每帧移动的点数
+     * @return 目标编号
+     */
+    public int addBlob(float x, float y, float radius, float temperature, float vx, float vy) {
+        if (!(radius > 0)) {
+            throw new IllegalArgumentException("radius must be positive");
+        }
+        int n = blobCount + 1;
+        blobX = Arrays.copyOf(blobX, n);
+        blobY = Arrays.copyOf(blobY, n);
+        blobVX = Arrays.copyOf(blobVX, n);
+        blobVY = Arrays.copyOf(blobVY, n);
+        blobRadius = Arrays.copyOf(blobRadius, n);
+        blobTemperature = Arrays.copyOf(blobTemperature, n);
+        blobX[blobCount] = x;
+        blobY[blobCount] = y;
+        blobVX[blobCount] = vx;
+        blobVY[blobCount] = vy;
+        blobRadius[blobCount] = radius;
+        blobTemperature[blobCount] = temperature;
+        return blobCount++;
+    }
+
+    /** 移除所有高温目标 */
+    public void clearBlobs() {
+        blobCount = 0;
+    }
+
+    /**
+     * 设置高斯噪声
+     *
+     * @param sigma 标准差，为 0 时没有噪声
+     */
+    public void setNoise(float sigma) {
+        this.noise = sigma;
+    }
+
+    /**
+     * 设置坏点，位置由随机数种子决定
+     *
+     * @param count 坏点数量
+     * @param value 坏点输出的温度值，可以为 NaN
+     */
+    public void setDeadPixels(int count, float value) {
+        count = Math.min(Math.max(count, 0), width * height);
+        Random rnd = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; ++i) {
+            pixels[i] = rnd.nextInt(width * height);
+        }
+        this.deadPixels = pixels;
+        this.deadValue = value;
+    }
+
+    /**
+     * 设置帧间隔抖动
+     *
+     * @param fraction 帧间隔随机变化的比例，0 到 1 之间
+     */
+    public void setJitter(float fraction) {
+        this.jitter = Math.min(Math.max(fraction, 0), 1);
+    }
+
+    /** 设置随机数种子，相同的参数和种子生成相同的数据帧 */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /** Returns the width of generated frames. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of generated frames. */
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Thermometer createThermometer() {
+        return new ThermoSimulator(this);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public String getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public float getAmbientTemperature() {
+        return ambientTemperature;
+    }
+
+    @Override
+    public void getTemperatures(TemperaturesListener listener) throws Exception {
+        synchronized (stateLock) {
+            if (running) {
+                throw new IllegalStateException("getTemperatures is already running");
+            }
+            // 不在这里清除 stopped，新对象第一次运行之前调用的 stop() 仍然有效，本次调用立即返回
+            running = true;
+            used = true;
+            simulatorThread = Thread.currentThread();
+        }
+        try {
+            prepare();
+            simulate(listener);
+        } finally {
+            synchronized (stateLock) {
+                simulatorThread = null;
+                stopped = false;
+                running = false;
+            }
+        }
+    }
+
+    private void prepare() {
+        int size = width * height;
+        if (field == null || field.length != size) {
+            field = new float[size];
+            output = new float[height][width];
+        }
+        for (int y = 0; y < height; ++y) {
+            Arrays.fill(field, y * width, (y + 1) * width, ambientTemperature + ambientGradient * y);
+        }
+        if (noiseTable == null) {
+            noiseTable = new float[NOISE_TABLE_SIZE];
+        }
+        Random rnd = new Random(seed);
+        for (int i = 0; i < NOISE_TABLE_SIZE; ++i) {
+            noiseTable[i] = (float) rnd.nextGaussian() * noise;
+        }
+        random = seed | 1;
+    }
+
+    private void simulate(TemperaturesListener listener) {
+        long intervalNanos = frameRate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / frameRate) : 0;
+        long deadline = System.nanoTime();
+        while (!stopped) {
+            generate();
+            if (listener.onTemperaturesReceived(output)) {
+                return;
+            }
+            moveBlobs();
+            if (intervalNanos > 0) {
+                // 抖动只影响单帧，下一帧仍按原来的节奏
+                deadline += intervalNanos;
+                long offset = (long) ((nextFloat() * 2 - 1) * jitter * intervalNanos);
+                waitUntil(deadline + offset);
+            }
+        }
+    }
+
+    private void generate() {
+        for (int y = 0; y < height; ++y) {
+            System.arraycopy(field, y * width, output[y], 0, width);
+        }
+        for (int i = 0; i < blobCount; ++i) {
+            drawBlob(blobX[i], blobY[i], blobRadius[i], blobTemperature[i]);
+        }
+
+        if (noise > 0) {
+            final float[] table = this.noiseTable;
+            final int mask = NOISE_TABLE_SIZE - 1;
+            for (int y = 0; y < height; ++y) {
+                float[] row = output[y];
+                int r = (int) nextRandom();
+                for (int x = 0; x < width; ++x) {
+                    // 线性同余遍历噪声表，比逐点调用随机数生成器快
+                    r = r * 1664525 + 1013904223;
+                    row[x] += table[(r >>> 16) & mask];
+                }
+            }
+        }
+        for (int index : deadPixels) {
+            output[index / width][index % width] = deadValue;
+        }
+    }
+
+    // 中心温度到边缘平滑过渡，只计算外接矩形内的点
+    private void drawBlob(float cx, float cy, float radius, float temperature) {
+        int x0 = Math.max((int) (cx - radius), 0), x1 = Math.min((int) (cx + radius) + 1, width - 1);
+        int y0 = Math.max((int) (cy - radius), 0), y1 = Math.min((int) (cy + radius) + 1, height - 1);
+        float invRadius2 = 1 / (radius * radius);
+        for (int y = y0; y <= y1; ++y) {
+            float[] row = output[y];
+            float dy = y - cy;
+            for (int x = x0; x <= x1; ++x) {
+                float dx = x - cx;
+                float t = 1 - (dx * dx + dy * dy) * invRadius2;
+                if (t > 0) {
+                    float weight = t * t * (3 - 2 * t);
+                    float value = row[x] + (temperature - row[x]) * weight;
+                    if (value > row[x]) {
+                        row[x] = value;
+                    }
+                }
+            }
+        }
+    }
+
+    private void moveBlobs() {
+        for (int i = 0; i < blobCount; ++i) {
+            blobX[i] += blobVX[i];
+            blobY[i] += blobVY[i];
+            if (blobX[i] < 0 || blobX[i] > width - 1) {
+                blobVX[i] = -blobVX[i];
+                blobX[i] = Math.min(Math.max(blobX[i], 0), width - 1);
+            }
+            if (blobY[i] < 0 || blobY[i] > height - 1) {
+                blobVY[i] = -blobVY[i];
+                blobY[i] = Math.min(Math.max(blobY[i], 0), height - 1);
+            }
+        }
+    }
+
+    // xorshift64
+    private long nextRandom() {
+        long x = random;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        random = x;
+        return x;
+    }
+
+    private float nextFloat() {
+        return (nextRandom() >>> 40) * 0x1.0p-24F;
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while (!stopped && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    /**
+     * 停止正在运行的 {@link #getTemperatures}
+     * <p>
+     * 与测温设备相同，一次运行结束后空闲时调用没有作用。与测温设备不同的是，新创建、还没有运行过的模拟设备会记住
+     * <code>stop()</code>，之后第一次 {@link #getTemperatures} 立即返回：取消订阅可能发生在创建测温设备之后、
+     * 调用 {@link #getTemperatures} 之前，这时的取消不应丢失，否则模拟设备不会自己结束
+     */
+    @Override
+    public void stop() {
+        Thread thread;
+        synchronized (stateLock) {
+            if (!running && used) {
+                return;
+            }
+            stopped = true;
+            thread = simulatorThread;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
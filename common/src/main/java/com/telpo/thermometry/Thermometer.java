@@ -24,20 +24,17 @@ public interface Thermometer {
     }
 
     /**
-     * 创建默认测温设备工厂
+     * 获取默认测温设备工厂
      * <p>
      * 默认实现类是
-     * com.telpo.thermometry.ThermometerFactory，通过反射来创建对象，异常时返回 null
+     * com.telpo.thermometry.ThermometerFactory，第一次调用时通过反射来创建对象，之后返回同一个对象，异常时返回 null
      *
-     * @return 如果成功返回新创建的测温设备工厂对象，否则返回 null
+     * @return 如果成功返回测温设备工厂对象，否则返回 null
+     *
+     * @see ThermoFactoryRegistry#getDefaultThermometerFactory()
      */
     static Thermometer.Factory getDefaultFactory() {
-        try {
-            return (Thermometer.Factory) Class.forName("com.telpo.thermometry.ThermometerFactory").newInstance();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
+        return ThermoFactoryRegistry.getDefaultThermometerFactory();
     }
 
     /**
@@ -80,6 +77,41 @@ public interface Thermometer {
      */
     void getTemperatures(TemperaturesListener listener) throws Exception;
 
+    /**
+     * 获取温度阵列数据帧，数据帧类型为 {@link ThermoFrame}
+     * <p>
+     * 调用限制与 {@link #getTemperatures} 相同。默认实现把 {@link #getTemperatures} 输出的 float 二维数组复制到同一个数据帧对象，
+     * 并设置帧序号和采集时间。
+     *
+     * @param listener 监听温度阵列数据帧输出
+     *
+     * @see #getTemperatures(TemperaturesListener)
+     * @see ThermoFrameListener
+     * @since 2.1
+     */
+    default void getFrames(ThermoFrameListener listener) throws Exception {
+        getTemperatures(new ThermoFrame.ListenerAdapter(listener));
+    }
+
+    /**
+     * 获取温度阵列数据帧，数据帧来自帧缓冲池
+     * <p>
+     * 调用限制与 {@link #getTemperatures} 相同。每帧数据复制到从 <code>pool</code> 取出的数据帧，
+     * {@link ThermoFrameListener#onFrameReceived} 返回后释放一次，需要在其它线程或之后的处理阶段继续使用数据帧时，
+     * 应在返回前调用 {@link ThermoFrame#retain()}，用完后调用 {@link ThermoFrame#release()}。
+     * <p>
+     * 帧缓冲池耗尽时当前数据帧被丢弃，参见 {@link ThermoFramePool#getDroppedCount()}，稳定运行时不会分配新的对象。
+     *
+     * @param pool 帧缓冲池，数据帧大小必须和测温设备输出的温度阵列大小相同
+     * @param listener 监听温度阵列数据帧输出
+     *
+     * @see ThermoFramePool
+     * @since 2.1
+     */
+    default void getFrames(ThermoFramePool pool, ThermoFrameListener listener) throws Exception {
+        getTemperatures(new ThermoFramePool.ListenerAdapter(pool, listener));
+    }
+
     /**
      * 停止测温设备工作
      * <p>
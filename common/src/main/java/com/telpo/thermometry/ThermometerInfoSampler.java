@@ -0,0 +1,227 @@
+package com.telpo.thermometry;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <code>ThermometerInfoSampler</code> 测温设备信息采样
+ * <p>
+ * {@link Thermometer#getAmbientTemperature()} 和 {@link Thermometer#getVersion()} 都会访问硬件并可能阻塞。
+ * <code>ThermometerInfoSampler</code> 在后台线程按固定间隔刷新环境温度，保存为不可变的快照，
+ * 读取时只读一个 volatile 字段，不加锁也不等待；版本号只读取一次并缓存。
+ * <p>
+ * 快照带有采样时间，超过有效期视为过期，参见 {@link Snapshot#isStale}。
+ * <code>ThermometerInfoSampler</code> 是线程安全的。
+ * <p>
+ * {@link #start()} 的后台刷新在采样器自己的线程访问测温设备，不会与其它测温设备对象同步。同一个测温设备正在获取数据帧时，
+ * 不要调用 {@link #start()}，而是在访问该测温设备的线程调用 {@link #refreshAmbient()} 和 {@link #refreshVersion()}，
+ * 采样器只作为缓存使用。
+ *
+ * @author  gfm
+ * @see     Thermometer
+ * @since   2.1
+ */
+public class ThermometerInfoSampler {
+    /** 默认环境温度刷新间隔，单位为毫秒 */
+    public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    /** 默认环境温度有效期，单位为毫秒 */
+    public static final long DEFAULT_TTL_MILLIS = 15000;
+
+    private final Thermometer thermometer;
+    private final long intervalMillis;
+    private final long ttlMillis;
+
+    /** 访问硬件的锁，读取快照不需要 */
+    private final Object deviceLock = new Object();
+
+    private volatile Snapshot ambient;
+    private volatile String version;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 环境温度快照，不可变
+     */
+    public static final class Snapshot {
+        private final float temperature;
+        private final long timestamp;
+
+        Snapshot(float temperature, long timestamp) {
+            this.temperature = temperature;
+            this.timestamp = timestamp;
+        }
+
+        /** Returns the ambient temperature. */
+        public float getTemperature() {
+            return temperature;
+        }
+
+        /** Returns the sampling time in {@link SystemClock#elapsedRealtimeNanos()}. */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /** Returns the age of this snapshot in milliseconds. */
+        public long getAgeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(SystemClock.elapsedRealtimeNanos() - timestamp);
+        }
+
+        /**
+         * 判断快照是否过期
+         *
+         * @param ttlMillis 有效期，单位为毫秒
+         */
+        public boolean isStale(long ttlMillis) {
+            return getAgeMillis() > ttlMillis;
+        }
+    }
+
+    /**
+     * 使用默认刷新间隔和有效期创建采样器
+     *
+     * @param thermometer 测温设备，建议使用单独创建的对象，不要和获取温度阵列数据帧的对象共用
+     */
+    public ThermometerInfoSampler(Thermometer thermometer) {
+        this(thermometer, DEFAULT_INTERVAL_MILLIS, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * ThermometerInfoSampler 构造方法
+     *
+     * @param thermometer 测温设备，建议使用单独创建的对象，不要和获取温度阵列数据帧的对象共用
+     * @param intervalMillis 环境温度刷新间隔，单位为毫秒
+     * @param ttlMillis 环境温度有效期，单位为毫秒
+     */
+    public ThermometerInfoSampler(Thermometer thermometer, long intervalMillis, long ttlMillis) {
+        if (thermometer == null || intervalMillis <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("invalid thermometer, interval or ttl");
+        }
+        this.thermometer = thermometer;
+        this.intervalMillis = intervalMillis;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 启动后台刷新，先读取版本号，再按间隔刷新环境温度
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, ThermometerInfoSampler.class.getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refreshVersion();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refreshAmbient();
+                } catch (Exception e) {
+                    // 保留上一次的快照，过期后由调用者判断
+                    e.printStackTrace();
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** 停止后台刷新，已缓存的值仍然可以读取 */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 立即从测温设备读取环境温度并更新快照，会阻塞
+     *
+     * @return 返回新的快照
+     */
+    public Snapshot refreshAmbient() throws Exception {
+        synchronized (deviceLock) {
+            float temperature = thermometer.getAmbientTemperature();
+            Snapshot snapshot = new Snapshot(temperature, SystemClock.elapsedRealtimeNanos());
+            ambient = snapshot;
+            return snapshot;
+        }
+    }
+
+    /**
+     * 返回缓存的版本号，还没有缓存时从测温设备读取，会阻塞
+     */
+    public String refreshVersion() throws Exception {
+        String v = version;
+        if (v != null) {
+            return v;
+        }
+        synchronized (deviceLock) {
+            if (version == null) {
+                version = thermometer.getVersion();
+            }
+            return version;
+        }
+    }
+
+    /**
+     * 返回最近的环境温度快照，不会阻塞
+     *
+     * @return 还没有采样时返回 null
+     */
+    public Snapshot getAmbientSnapshot() {
+        return ambient;
+    }
+
+    /**
+     * 返回有效期内的环境温度，不会阻塞
+     *
+     * @return 还没有采样或快照已经过期时返回 NaN
+     */
+    public float getAmbientTemperature() {
+        Snapshot snapshot = ambient;
+        return snapshot != null && !snapshot.isStale(ttlMillis) ? snapshot.getTemperature() : Float.NaN;
+    }
+
+    /** Returns true if there is no ambient snapshot or it has expired. */
+    public boolean isAmbientStale() {
+        Snapshot snapshot = ambient;
+        return snapshot == null || snapshot.isStale(ttlMillis);
+    }
+
+    /**
+     * 返回缓存的版本号，不会阻塞
+     *
+     * @return 还没有读取到版本号时返回 null
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /** Returns the refresh interval in milliseconds. */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /** Returns the time-to-live of ambient snapshots in milliseconds. */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}